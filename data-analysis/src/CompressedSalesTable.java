@@ -0,0 +1,301 @@
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Compressed, column-oriented in-memory copy of a sales dataset.
+ * Strings are dictionary-encoded, and every column is stored as an
+ * EncodedColumn (bit-packed frame-of-reference or run-length, whichever is
+ * smaller). Aggregation kernels read codes and deltas straight from the
+ * encoded columns and accumulate into primitive arrays indexed by code, so no
+ * Sale, String or BigDecimal is materialized per row.
+ *
+ * Unit prices are stored as unscaled longs at the column's largest scale
+ * (e.g. 50.5 is held as 5050 at scale 2), so decoded prices compare equal but
+ * may carry a larger scale than the input.
+ */
+public class CompressedSalesTable {
+    private static final Logger LOGGER = Logger.getLogger(CompressedSalesTable.class.getName());
+    private static final String[] COLUMN_NAMES = {
+            "transaction_id", "date", "product_name", "category", "region", "quantity", "unit_price" };
+    private static final int TRANSACTION_ID = 0;
+    private static final int DATE = 1;
+    private static final int PRODUCT = 2;
+    private static final int CATEGORY = 3;
+    private static final int REGION = 4;
+    private static final int QUANTITY = 5;
+    private static final int UNIT_PRICE = 6;
+    // Plain uncompressed width per row: int ids/codes/quantity/epoch-day, long unscaled price
+    private static final int[] PLAIN_BYTES = { 4, 4, 4, 4, 4, 4, 8 };
+
+    private final int rowCount;
+    private final int priceScale;
+    private final StringDictionary products;
+    private final StringDictionary categories;
+    private final StringDictionary regions;
+    private final EncodedColumn[] columns;
+
+    private CompressedSalesTable(int rowCount, int priceScale, StringDictionary products,
+            StringDictionary categories, StringDictionary regions, EncodedColumn[] columns) {
+        this.rowCount = rowCount;
+        this.priceScale = priceScale;
+        this.products = products;
+        this.categories = categories;
+        this.regions = regions;
+        this.columns = columns;
+    }
+
+    /**
+     * Encodes a list of sales column by column.
+     *
+     * @throws ArithmeticException if a unit price does not fit in a long at the column scale
+     */
+    public static CompressedSalesTable encode(List<Sale> sales) {
+        int n = sales.size();
+        int priceScale = 0;
+        for (Sale sale : sales) {
+            priceScale = Math.max(priceScale, sale.getUnitPrice().scale());
+        }
+
+        StringDictionary products = new StringDictionary();
+        StringDictionary categories = new StringDictionary();
+        StringDictionary regions = new StringDictionary();
+        long[][] raw = new long[COLUMN_NAMES.length][n];
+        for (int i = 0; i < n; i++) {
+            Sale sale = sales.get(i);
+            raw[TRANSACTION_ID][i] = sale.getTransactionId();
+            raw[DATE][i] = sale.getDate().toEpochDay();
+            raw[PRODUCT][i] = products.encode(sale.getProductName());
+            raw[CATEGORY][i] = categories.encode(sale.getCategory());
+            raw[REGION][i] = regions.encode(sale.getRegion());
+            raw[QUANTITY][i] = sale.getQuantity();
+            raw[UNIT_PRICE][i] = sale.getUnitPrice().setScale(priceScale).unscaledValue().longValueExact();
+        }
+
+        EncodedColumn[] columns = new EncodedColumn[COLUMN_NAMES.length];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = EncodedColumn.encode(raw[c]);
+            raw[c] = null; // Release each plain column as soon as it is encoded
+        }
+        return new CompressedSalesTable(n, priceScale, products, categories, regions, columns);
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    // --- Aggregation kernels (operate on encoded data) ---
+
+    /**
+     * @return Map of Category -> Total Revenue, equal to
+     *         SalesAnalyzer.getTotalSalesByCategory()
+     * @throws ArithmeticException if a category total overflows a long at the price scale
+     */
+    public Map<String, BigDecimal> getTotalSalesByCategory() {
+        return sumRevenueByCode(columns[CATEGORY], categories);
+    }
+
+    /**
+     * @return Map of Region -> Total Revenue
+     */
+    public Map<String, BigDecimal> getTotalSalesByRegion() {
+        return sumRevenueByCode(columns[REGION], regions);
+    }
+
+    /**
+     * @return Map of Product Name -> Total Quantity
+     */
+    public Map<String, Long> getTotalQuantityByProduct() {
+        EncodedColumn productCodes = columns[PRODUCT];
+        EncodedColumn quantities = columns[QUANTITY];
+        long[] totals = new long[products.size()];
+        for (int i = 0; i < rowCount; i++) {
+            totals[(int) productCodes.get(i)] += quantities.get(i);
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            result.put(products.decode(code), totals[code]);
+        }
+        return result;
+    }
+
+    /**
+     * @return Map of Month (YYYY-MM) -> Total Revenue, equal to
+     *         SalesAnalyzer.getSalesTrendByMonth()
+     */
+    public Map<String, BigDecimal> getSalesTrendByMonth() {
+        if (rowCount == 0) {
+            return new LinkedHashMap<>();
+        }
+        EncodedColumn days = columns[DATE];
+        EncodedColumn quantities = columns[QUANTITY];
+        EncodedColumn prices = columns[UNIT_PRICE];
+
+        // Dates cluster into runs: convert each run's day to a month once, not per row
+        int[] monthRange = { Integer.MAX_VALUE, Integer.MIN_VALUE };
+        days.forEachRun((start, end, day) -> {
+            int month = monthIndex(day);
+            monthRange[0] = Math.min(monthRange[0], month);
+            monthRange[1] = Math.max(monthRange[1], month);
+        });
+        int minMonth = monthRange[0];
+        long[] totals = new long[monthRange[1] - minMonth + 1];
+        boolean[] seen = new boolean[totals.length];
+        days.forEachRun((start, end, day) -> {
+            int slot = monthIndex(day) - minMonth;
+            long total = totals[slot];
+            for (int i = start; i < end; i++) {
+                total = Math.addExact(total, Math.multiplyExact(quantities.get(i), prices.get(i)));
+            }
+            totals[slot] = total;
+            seen[slot] = true;
+        });
+
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < totals.length; slot++) {
+            if (seen[slot]) {
+                int month = minMonth + slot;
+                String key = String.format("%04d-%02d", Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+                result.put(key, BigDecimal.valueOf(totals[slot], priceScale));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gross margin by category joined to product costs on dictionary codes:
+     * the product dictionary is translated to dimension codes once, so the
+     * per-row probe is an array index rather than a String hash lookup.
+     * Products without a cost are excluded and counted in a warning, as in
+     * SalesAnalyzer.getGrossMarginByCategory().
+     *
+     * @param productCosts product_name -> unit_cost
+     * @return Map of Category -> Gross Margin
+     */
+    public Map<String, BigDecimal> getGrossMarginByCategory(DimensionTable productCosts) {
+        int[] costCodes = productCosts.translate(products);
+        int scale = priceScale;
+        for (int code : costCodes) {
+            if (code != StringDictionary.NOT_FOUND) {
+                scale = Math.max(scale, productCosts.valueAt(code).scale());
+            }
+        }
+        // Unit cost per product code, as unscaled longs at the common scale
+        long[] unitCosts = new long[costCodes.length];
+        for (int code = 0; code < costCodes.length; code++) {
+            if (costCodes[code] != StringDictionary.NOT_FOUND) {
+                unitCosts[code] = productCosts.valueAt(costCodes[code]).setScale(scale).unscaledValue()
+                        .longValueExact();
+            }
+        }
+        long priceFactor = BigDecimal.ONE.scaleByPowerOfTen(scale - priceScale).longValueExact();
+
+        EncodedColumn productCodes = columns[PRODUCT];
+        EncodedColumn categoryCodes = columns[CATEGORY];
+        EncodedColumn quantities = columns[QUANTITY];
+        EncodedColumn prices = columns[UNIT_PRICE];
+        long[] totals = new long[categories.size()];
+        boolean[] matched = new boolean[categories.size()];
+        long unmatched = 0;
+        for (int i = 0; i < rowCount; i++) {
+            int product = (int) productCodes.get(i);
+            if (costCodes[product] == StringDictionary.NOT_FOUND) {
+                unmatched++;
+                continue;
+            }
+            int category = (int) categoryCodes.get(i);
+            long unitMargin = Math.subtractExact(Math.multiplyExact(prices.get(i), priceFactor), unitCosts[product]);
+            totals[category] = Math.addExact(totals[category], Math.multiplyExact(quantities.get(i), unitMargin));
+            matched[category] = true;
+        }
+        if (unmatched > 0) {
+            LOGGER.warning("Join excluded " + unmatched + " records with no dimension match");
+        }
+
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            if (matched[code]) {
+                result.put(categories.decode(code), BigDecimal.valueOf(totals[code], scale));
+            }
+        }
+        return result;
+    }
+
+    // --- Compression report ---
+
+    /**
+     * @return Map of Column -> compression ratio (plain bytes / encoded bytes),
+     *         where plain is a 4-byte int per row (8 for price) and encoded
+     *         includes dictionary contents for string columns
+     */
+    public Map<String, Double> getCompressionRatios() {
+        Map<String, Double> ratios = new LinkedHashMap<>();
+        for (int c = 0; c < columns.length; c++) {
+            long plain = (long) rowCount * PLAIN_BYTES[c];
+            long encoded = Math.max(1, columns[c].encodedBytes() + dictionaryBytes(c));
+            ratios.put(COLUMN_NAMES[c], (double) plain / encoded);
+        }
+        return ratios;
+    }
+
+    /**
+     * @return Human-readable per-column encoding and ratio summary
+     */
+    public String compressionReport() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, Double> ratios = getCompressionRatios();
+        for (int c = 0; c < columns.length; c++) {
+            sb.append(String.format("  - %s: %s, %d bytes, %.1fx%n",
+                    COLUMN_NAMES[c], columns[c].encoding(),
+                    columns[c].encodedBytes() + dictionaryBytes(c), ratios.get(COLUMN_NAMES[c])));
+        }
+        return sb.toString();
+    }
+
+    private Map<String, BigDecimal> sumRevenueByCode(EncodedColumn codes, StringDictionary dictionary) {
+        EncodedColumn quantities = columns[QUANTITY];
+        EncodedColumn prices = columns[UNIT_PRICE];
+        long[] totals = new long[dictionary.size()];
+        for (int i = 0; i < rowCount; i++) {
+            int code = (int) codes.get(i);
+            totals[code] = Math.addExact(totals[code], Math.multiplyExact(quantities.get(i), prices.get(i)));
+        }
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int code = 0; code < totals.length; code++) {
+            result.put(dictionary.decode(code), BigDecimal.valueOf(totals[code], priceScale));
+        }
+        return result;
+    }
+
+    private long dictionaryBytes(int column) {
+        StringDictionary dictionary = column == PRODUCT ? products
+                : column == CATEGORY ? categories
+                        : column == REGION ? regions : null;
+        if (dictionary == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (int code = 0; code < dictionary.size(); code++) {
+            bytes += (long) dictionary.decode(code).length() * Character.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Months since 0000-01 for an epoch day, using the days-to-civil algorithm
+     * so no LocalDate is allocated per row.
+     */
+    static int monthIndex(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+}
@@ -1,6 +1,11 @@
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -8,9 +13,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 /**
  * Utility class to load sales data from a CSV file.
@@ -28,61 +40,235 @@ public class CsvLoader {
      */
     public static List<Sale> loadSalesData(String filepath) {
         List<Sale> sales = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(filepath))) {
+        loadSalesData(filepath, sales::add);
+        return sales;
+    }
+
+    /**
+     * Loads several (possibly overlapping) CSV files as one dataset, keeping a
+     * single row per transaction_id according to the deduplicator's policy.
+     *
+     * @param filepaths Files in load order; "first" and "last" follow this order.
+     * @param dedup     Decides which duplicate wins and counts the dropped rows.
+     * @return The deduplicated Sale objects.
+     */
+    public static List<Sale> loadSalesData(List<String> filepaths, TransactionDeduplicator dedup) {
+        List<Sale> sales = new ArrayList<>();
+        if (dedup.getPolicy() == TransactionDeduplicator.Policy.FIRST_WINS) {
+            // Duplicates are dropped as they stream in and never held in memory
+            Consumer<Sale> sink = dedup.filter(sales::add);
+            for (String filepath : filepaths) {
+                loadSalesData(filepath, sink);
+            }
+        } else {
+            for (String filepath : filepaths) {
+                loadSalesData(filepath, sales::add);
+            }
+            sales = dedup.deduplicate(sales);
+        }
+        if (dedup.getDuplicateCount() > 0) {
+            LOGGER.warning("Dropped " + dedup.getDuplicateCount() + " duplicate transaction(s) ("
+                    + dedup.getPolicy() + ")");
+        }
+        return sales;
+    }
+
+    /**
+     * Streams parsed rows into a sink instead of collecting them, so callers
+     * can store rows elsewhere (e.g. off-heap) without an intermediate list.
+     *
+     * @param filepath The path to the CSV file.
+     * @param sink     Receives each valid Sale in file order.
+     * @return Number of rows delivered to the sink.
+     */
+    public static int loadSalesData(String filepath, Consumer<Sale> sink) {
+        int[] loaded = { 0 };
+        try {
+            readSalesData(filepath, sale -> {
+                sink.accept(sale);
+                loaded[0]++;
+            });
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading file: " + filepath, e);
+        }
+        return loaded[0];
+    }
+
+    /**
+     * Same as loadSalesData(filepath, sink), but a file that cannot be opened
+     * or read fails the call instead of being logged, for callers such as
+     * ShardWorker that must not report a partial load as success.
+     *
+     * @throws IOException if the file cannot be opened or a read fails part way
+     */
+    static int readSalesData(String filepath, Consumer<Sale> sink) throws IOException {
+        int loaded = 0;
+        try (BufferedReader br = openReader(filepath)) {
             String headerLine = br.readLine();
             if (headerLine == null) {
                 LOGGER.severe("CSV file is empty");
-                return sales;
+                return loaded;
             }
 
-            // Map header names to indices
-            String[] headers = headerLine.split(",");
-            Map<String, Integer> headerMap = new HashMap<>();
-            for (int i = 0; i < headers.length; i++) {
-                headerMap.put(headers[i].trim(), i);
+            Map<String, Integer> headerMap = parseHeader(headerLine);
+            if (headerMap == null) {
+                return loaded;
             }
+            int maxIndex = Collections.max(headerMap.values());
+            Map<String, String> canonical = new HashMap<>();
 
-            // Validate required headers
-            String[] requiredHeaders = { "transaction_id", "date", "product_name", "category", "region", "quantity",
-                    "unit_price" };
-            for (String required : requiredHeaders) {
-                if (!headerMap.containsKey(required)) {
-                    LOGGER.severe("Missing required header: " + required);
-                    return sales;
+            String line;
+            while ((line = br.readLine()) != null) {
+                Sale sale = parseLine(line, headerMap, maxIndex, canonical);
+                if (sale != null) {
+                    sink.accept(sale);
+                    loaded++;
                 }
             }
+        }
+        return loaded;
+    }
 
-            String line;
-            while ((line = br.readLine()) != null) {
-                try {
-                    // Handle potential commas in quoted fields? For simplicity, assuming standard
-                    // CSV without quoted commas for now
-                    // as per the generator. If needed, a regex or CSV library would be better.
-                    String[] values = line.split(",");
-
-                    // Ensure we have enough columns for the max index we need
-                    if (values.length <= Collections.max(headerMap.values())) {
-                        LOGGER.warning("Skipping malformed line (not enough columns): " + line);
-                        continue;
-                    }
-
-                    Sale sale = new Sale(
-                            Integer.parseInt(values[headerMap.get("transaction_id")]),
-                            LocalDate.parse(values[headerMap.get("date")], DATE_FORMATTER),
-                            values[headerMap.get("product_name")],
-                            values[headerMap.get("category")],
-                            values[headerMap.get("region")],
-                            Integer.parseInt(values[headerMap.get("quantity")]),
-                            new BigDecimal(values[headerMap.get("unit_price")]));
-                    sales.add(sale);
-                } catch (Exception e) {
-                    // Log the failure without dumping the full stack trace to keep test output clean
-                    LOGGER.log(Level.WARNING, "Error parsing line (skipped): " + line + " | " + e.getMessage());
+    /**
+     * Opens a CSV file for reading, decompressing by extension: .gz (gzip),
+     * .zip (single file entry) or .deflate (zlib). Compressed input is inflated
+     * on a separate thread (see DecompressingInputStream) so it overlaps with
+     * parsing; other files are read as plain text.
+     *
+     * @param filepath The path to the (possibly compressed) file.
+     * @return Reader over the decompressed text.
+     * @throws IOException if the file cannot be opened, is not valid for its codec, or is a multi-file zip.
+     */
+    static BufferedReader openReader(String filepath) throws IOException {
+        String name = filepath.toLowerCase(Locale.ROOT);
+        if (!name.endsWith(".gz") && !name.endsWith(".zip") && !name.endsWith(".deflate")) {
+            return new BufferedReader(new FileReader(filepath));
+        }
+
+        InputStream file = new FileInputStream(filepath);
+        InputStream decompressed;
+        try {
+            if (name.endsWith(".gz")) {
+                decompressed = new GZIPInputStream(file, DecompressingInputStream.DEFAULT_BLOCK_SIZE);
+            } else if (name.endsWith(".zip")) {
+                requireSingleFileEntry(filepath);
+                ZipInputStream zip = new ZipInputStream(new BufferedInputStream(file,
+                        DecompressingInputStream.DEFAULT_BLOCK_SIZE));
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null && entry.isDirectory()) {
+                    // Skip directory entries
                 }
+                if (entry == null) {
+                    throw new IOException("Zip archive has no file entry: " + filepath);
+                }
+                decompressed = zip;
+            } else {
+                decompressed = new InflaterInputStream(new BufferedInputStream(file,
+                        DecompressingInputStream.DEFAULT_BLOCK_SIZE));
             }
         } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error reading file: " + filepath, e);
+            file.close();
+            throw e;
         }
-        return sales;
+        return new BufferedReader(new InputStreamReader(
+                new DecompressingInputStream(decompressed, new File(filepath).getName())));
+    }
+
+    /**
+     * Reads the zip's central directory so an archive with several files fails
+     * instead of silently loading only the first one.
+     *
+     * @throws IOException if the archive holds more than one file entry
+     */
+    private static void requireSingleFileEntry(String filepath) throws IOException {
+        try (ZipFile zip = new ZipFile(filepath)) {
+            long files = zip.stream().filter(entry -> !entry.isDirectory()).count();
+            if (files > 1) {
+                throw new IOException("Zip archive has " + files + " file entries, expected one: " + filepath);
+            }
+        }
+    }
+
+    /**
+     * Maps header names to column indices and validates required headers.
+     *
+     * @param headerLine The first line of the CSV file.
+     * @return Header name -> column index, or null if a required header is missing.
+     */
+    static Map<String, Integer> parseHeader(String headerLine) {
+        // Map header names to indices
+        String[] headers = headerLine.split(",");
+        Map<String, Integer> headerMap = new HashMap<>();
+        for (int i = 0; i < headers.length; i++) {
+            headerMap.put(headers[i].trim(), i);
+        }
+
+        // Validate required headers
+        String[] requiredHeaders = { "transaction_id", "date", "product_name", "category", "region", "quantity",
+                "unit_price" };
+        for (String required : requiredHeaders) {
+            if (!headerMap.containsKey(required)) {
+                LOGGER.severe("Missing required header: " + required);
+                return null;
+            }
+        }
+        return headerMap;
+    }
+
+    /**
+     * Parses a single data line. Malformed lines are logged and skipped.
+     *
+     * @param line      The raw CSV line.
+     * @param headerMap Header name -> column index from parseHeader.
+     * @param maxIndex  Largest column index in headerMap.
+     * @return The parsed Sale, or null if the line was skipped.
+     */
+    static Sale parseLine(String line, Map<String, Integer> headerMap, int maxIndex) {
+        return parseLine(line, headerMap, maxIndex, null);
+    }
+
+    /**
+     * Same as parseLine(line, headerMap, maxIndex), but product, category and
+     * region values are replaced by one shared String per distinct value. Rows
+     * then hold far fewer duplicate strings, and GroupByEngine can match
+     * dimension values by reference.
+     *
+     * @param canonical Distinct value -> shared instance for this load; null to skip
+     */
+    static Sale parseLine(String line, Map<String, Integer> headerMap, int maxIndex,
+            Map<String, String> canonical) {
+        try {
+            // Handle potential commas in quoted fields? For simplicity, assuming standard
+            // CSV without quoted commas for now
+            // as per the generator. If needed, a regex or CSV library would be better.
+            String[] values = line.split(",");
+
+            // Ensure we have enough columns for the max index we need
+            if (values.length <= maxIndex) {
+                LOGGER.warning("Skipping malformed line (not enough columns): " + line);
+                return null;
+            }
+
+            return new Sale(
+                    Integer.parseInt(values[headerMap.get("transaction_id")]),
+                    LocalDate.parse(values[headerMap.get("date")], DATE_FORMATTER),
+                    canonical(values[headerMap.get("product_name")], canonical),
+                    canonical(values[headerMap.get("category")], canonical),
+                    canonical(values[headerMap.get("region")], canonical),
+                    Integer.parseInt(values[headerMap.get("quantity")]),
+                    new BigDecimal(values[headerMap.get("unit_price")]));
+        } catch (Exception e) {
+            // Log the failure without dumping the full stack trace to keep test output clean
+            LOGGER.log(Level.WARNING, "Error parsing line (skipped): " + line + " | " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String canonical(String value, Map<String, String> canonical) {
+        if (canonical == null) {
+            return value;
+        }
+        String shared = canonical.putIfAbsent(value, value);
+        return shared != null ? shared : value;
     }
 }
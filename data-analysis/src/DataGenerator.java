@@ -2,6 +2,8 @@
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.Random;
 import java.util.logging.Level;
@@ -59,4 +61,38 @@ public class DataGenerator {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Writes the product cost dimension (product_name,unit_cost) for the
+     * generated catalogue, with cost at 60% of the base price.
+     */
+    public static void generateProductCosts(String filename) {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            writer.println("product_name,unit_cost");
+            for (int i = 0; i < PRODUCTS.length; i += 3) {
+                BigDecimal cost = new BigDecimal(PRODUCTS[i + 2]).multiply(new BigDecimal("0.60"))
+                        .setScale(2, RoundingMode.HALF_UP);
+                writer.printf("%s,%s%n", PRODUCTS[i], cost.toPlainString());
+            }
+            LOGGER.info("Generated product costs in " + filename);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error generating product cost file: " + filename, e);
+        }
+    }
+
+    /**
+     * Writes the region population dimension (region,population).
+     */
+    public static void generateRegionPopulation(String filename) {
+        long[] populations = { 1_200_000, 950_000, 1_500_000, 800_000 };
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            writer.println("region,population");
+            for (int i = 0; i < REGIONS.length; i++) {
+                writer.printf("%s,%d%n", REGIONS[i], populations[i]);
+            }
+            LOGGER.info("Generated region population in " + filename);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error generating region population file: " + filename, e);
+        }
+    }
 }
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs a decompressing stream (GZIPInputStream, InflaterInputStream, ...) on
+ * its own thread so inflation overlaps with whatever consumes the bytes,
+ * typically CSV parsing. The decompressor fills fixed-size blocks and hands
+ * them over through a bounded queue; consumed blocks are recycled, so at most
+ * blockCount blocks are ever allocated and a slow reader stalls the
+ * decompressor instead of buffering the whole file.
+ * A read or decompression error, including an unchecked exception or Error
+ * thrown by the codec, is rethrown to the reader as an IOException at the
+ * point in the stream where it happened.
+ */
+public class DecompressingInputStream extends InputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_BLOCK_COUNT = 4;
+
+    private final InputStream source;
+    private final BlockingQueue<Block> filled;
+    private final BlockingQueue<Block> free;
+    private final Thread decompressor;
+    private Block current;
+    private int position;
+    private boolean finished;
+    private volatile boolean closed;
+
+    public DecompressingInputStream(InputStream source, String name) {
+        this(source, name, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+    }
+
+    /**
+     * @param source     Decompressing stream; owned and closed by this stream
+     * @param name       Used in the decompressor thread name
+     * @param blockCount Blocks in flight; must be at least 2 so both sides can work
+     */
+    public DecompressingInputStream(InputStream source, String name, int blockSize, int blockCount) {
+        if (blockSize <= 0 || blockCount < 2) {
+            throw new IllegalArgumentException("Block size must be positive and block count >= 2");
+        }
+        this.source = source;
+        this.filled = new ArrayBlockingQueue<>(blockCount + 1);
+        this.free = new ArrayBlockingQueue<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            free.add(new Block(blockSize));
+        }
+        this.decompressor = new Thread(this::decompress, "decompress-" + name);
+        decompressor.setDaemon(true);
+        decompressor.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current.data, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        decompressor.interrupt();
+        try {
+            decompressor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+    /**
+     * @return false at end of stream
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (!finished && (current == null || position == current.length)) {
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+            Block next;
+            try {
+                next = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for decompressed data", e);
+            }
+            if (next.failure != null) {
+                finished = true;
+                // Unchecked failures keep their type in the message, e.g. OutOfMemoryError
+                String reason = next.failure instanceof IOException
+                        ? next.failure.getMessage()
+                        : next.failure.toString();
+                throw new IOException("Decompression failed: " + reason, next.failure);
+            }
+            if (next.length < 0) {
+                finished = true;
+            } else {
+                current = next;
+                position = 0;
+            }
+        }
+        return !finished;
+    }
+
+    // --- Decompressor thread ---
+
+    private void decompress() {
+        try {
+            while (true) {
+                Block block = free.take();
+                block.length = source.readNBytes(block.data, 0, block.data.length);
+                if (block.length == 0) {
+                    filled.put(Block.END);
+                    return;
+                }
+                filled.put(block);
+            }
+        } catch (InterruptedException e) {
+            // close() while the reader stopped early
+        } catch (Throwable e) {
+            // Any failure must reach the reader, or it would wait in fill() forever
+            if (!closed) {
+                filled.add(Block.failed(e));
+            }
+        }
+    }
+
+    private static final class Block {
+        static final Block END = new Block(0);
+
+        final byte[] data;
+        int length;
+        Throwable failure;
+
+        Block(int size) {
+            this.data = new byte[size];
+            this.length = -1;
+        }
+
+        static Block failed(Throwable failure) {
+            Block block = new Block(0);
+            block.failure = failure;
+            return block;
+        }
+    }
+}
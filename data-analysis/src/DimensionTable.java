@@ -0,0 +1,120 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small key -> value lookup table used as the build side of a broadcast hash
+ * join, e.g. product_name -> unit_cost or region -> population.
+ * Keys are dictionary-encoded, so a fact table that is itself
+ * dictionary-encoded can translate its codes once (see translate()) and probe
+ * by array index instead of hashing a String per row.
+ */
+public class DimensionTable {
+    private static final Logger LOGGER = Logger.getLogger(DimensionTable.class.getName());
+
+    private final StringDictionary keys = new StringDictionary();
+    private final List<BigDecimal> values = new ArrayList<>();
+
+    /**
+     * Reads a dimension CSV. Like CsvLoader, columns may be in any order,
+     * extra columns are ignored and malformed lines are logged and skipped.
+     * When a key repeats, the first value wins.
+     *
+     * @param filepath    The path to the CSV file.
+     * @param keyColumn   Header of the join key column, e.g. "product_name".
+     * @param valueColumn Header of the numeric value column, e.g. "unit_cost".
+     * @return The loaded table (empty if the file or a header is missing).
+     */
+    public static DimensionTable load(String filepath, String keyColumn, String valueColumn) {
+        DimensionTable table = new DimensionTable();
+        try (BufferedReader br = CsvLoader.openReader(filepath)) {
+            String headerLine = br.readLine();
+            if (headerLine == null) {
+                LOGGER.severe("Dimension file is empty: " + filepath);
+                return table;
+            }
+
+            String[] headers = headerLine.split(",");
+            Map<String, Integer> headerMap = new HashMap<>();
+            for (int i = 0; i < headers.length; i++) {
+                headerMap.put(headers[i].trim(), i);
+            }
+            if (!headerMap.containsKey(keyColumn) || !headerMap.containsKey(valueColumn)) {
+                LOGGER.severe("Missing required header in " + filepath + ": " + keyColumn + ", " + valueColumn);
+                return table;
+            }
+            int keyIndex = headerMap.get(keyColumn);
+            int valueIndex = headerMap.get(valueColumn);
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                try {
+                    String[] fields = line.split(",");
+                    if (fields.length <= Math.max(keyIndex, valueIndex)) {
+                        LOGGER.warning("Skipping malformed dimension line (not enough columns): " + line);
+                        continue;
+                    }
+                    if (!table.put(fields[keyIndex], new BigDecimal(fields[valueIndex]))) {
+                        LOGGER.warning("Duplicate dimension key (kept first): " + fields[keyIndex]);
+                    }
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.WARNING, "Error parsing dimension line (skipped): " + line + " | "
+                            + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading dimension file: " + filepath, e);
+        }
+        LOGGER.info("Loaded dimension " + keyColumn + " -> " + valueColumn + " with " + table.size() + " keys");
+        return table;
+    }
+
+    /**
+     * @return false if the key was already present (the existing value is kept)
+     */
+    public boolean put(String key, BigDecimal value) {
+        if (keys.lookup(key) != StringDictionary.NOT_FOUND) {
+            return false;
+        }
+        keys.encode(key);
+        values.add(value);
+        return true;
+    }
+
+    /**
+     * @return The value for key, or null if the key is not in the table
+     */
+    public BigDecimal get(String key) {
+        int code = keys.lookup(key);
+        return code == StringDictionary.NOT_FOUND ? null : values.get(code);
+    }
+
+    /**
+     * @return The value for a dimension code from translate()
+     */
+    public BigDecimal valueAt(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * Maps every code of a fact-side dictionary to this table's code for the
+     * same key (or StringDictionary.NOT_FOUND), so probes become array lookups.
+     */
+    public int[] translate(StringDictionary factKeys) {
+        int[] translation = new int[factKeys.size()];
+        for (int code = 0; code < translation.length; code++) {
+            translation[code] = keys.lookup(factKeys.decode(code));
+        }
+        return translation;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
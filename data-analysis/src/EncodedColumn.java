@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * Immutable compressed column of integral values with random access.
+ * encode() picks the smaller of two lightweight encodings:
+ * - Frame-of-reference + bit-packing: stores (value - min) in the minimum
+ * number of bits, e.g. 2 bits for 4 dictionary codes, 3 bits for quantity 1-5.
+ * - Run-length: stores (value, run end) pairs; wins on sorted or clustered
+ * data such as dates in a date-ordered extract.
+ * Reads decode a single value in place; the column is never expanded.
+ * Kernels that scan every row should use forEachRun(), which walks runs
+ * directly instead of locating each row's run.
+ */
+public abstract class EncodedColumn {
+
+    /**
+     * @return Value at row
+     */
+    public abstract long get(int row);
+
+    public abstract int size();
+
+    /**
+     * Visits maximal runs of equal values in row order.
+     */
+    public abstract void forEachRun(RunVisitor visitor);
+
+    public interface RunVisitor {
+        /**
+         * @param start First row of the run
+         * @param end   Row after the last row of the run (exclusive)
+         * @param value Value shared by every row in the run
+         */
+        void visit(int start, int end, long value);
+    }
+
+    /**
+     * @return Approximate bytes used by the encoded representation
+     */
+    public abstract long encodedBytes();
+
+    /**
+     * @return Short encoding description for reports, e.g. "bit-packed(3)"
+     */
+    public abstract String encoding();
+
+    public static EncodedColumn encode(long[] values) {
+        EncodedColumn packed = BitPacked.of(values);
+        RunLength runs = RunLength.of(values, packed.encodedBytes());
+        return runs != null ? runs : packed;
+    }
+
+    /**
+     * Frame-of-reference + bit-packing.
+     */
+    private static final class BitPacked extends EncodedColumn {
+        private final long base;
+        private final int bitWidth;
+        private final long mask;
+        private final long[] words;
+        private final int size;
+
+        private BitPacked(long base, int bitWidth, long[] words, int size) {
+            this.base = base;
+            this.bitWidth = bitWidth;
+            this.mask = bitWidth == 64 ? -1L : (1L << bitWidth) - 1;
+            this.words = words;
+            this.size = size;
+        }
+
+        static BitPacked of(long[] values) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (long value : values) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (values.length == 0) {
+                return new BitPacked(0, 0, new long[0], 0);
+            }
+            // Unsigned difference, so ranges wider than Long.MAX_VALUE still fit in 64 bits
+            int bitWidth = 64 - Long.numberOfLeadingZeros(max - min);
+            long[] words = new long[(int) (((long) values.length * bitWidth + 63) >>> 6)];
+            for (int i = 0; i < values.length && bitWidth > 0; i++) {
+                long delta = values[i] - min;
+                long bitPos = (long) i * bitWidth;
+                int word = (int) (bitPos >>> 6);
+                int offset = (int) (bitPos & 63);
+                words[word] |= delta << offset;
+                if (offset + bitWidth > 64) {
+                    words[word + 1] |= delta >>> (64 - offset);
+                }
+            }
+            return new BitPacked(min, bitWidth, words, values.length);
+        }
+
+        @Override
+        public long get(int row) {
+            if (bitWidth == 0) {
+                return base;
+            }
+            long bitPos = (long) row * bitWidth;
+            int word = (int) (bitPos >>> 6);
+            int offset = (int) (bitPos & 63);
+            long delta = words[word] >>> offset;
+            if (offset + bitWidth > 64) {
+                delta |= words[word + 1] << (64 - offset);
+            }
+            return base + (delta & mask);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void forEachRun(RunVisitor visitor) {
+            int start = 0;
+            while (start < size) {
+                long value = get(start);
+                int end = start + 1;
+                while (end < size && get(end) == value) {
+                    end++;
+                }
+                visitor.visit(start, end, value);
+                start = end;
+            }
+        }
+
+        @Override
+        public long encodedBytes() {
+            return (long) words.length * Long.BYTES;
+        }
+
+        @Override
+        public String encoding() {
+            return "bit-packed(" + bitWidth + ")";
+        }
+    }
+
+    /**
+     * Run-length encoding with cumulative run ends for binary-searched access.
+     */
+    private static final class RunLength extends EncodedColumn {
+        private final long[] runValues;
+        private final int[] runEnds; // exclusive
+
+        private RunLength(long[] runValues, int[] runEnds) {
+            this.runValues = runValues;
+            this.runEnds = runEnds;
+        }
+
+        /**
+         * @return The RLE column, or null if it would not be smaller than budgetBytes
+         */
+        static RunLength of(long[] values, long budgetBytes) {
+            long bytesPerRun = Long.BYTES + Integer.BYTES;
+            long maxRuns = budgetBytes / bytesPerRun;
+            int runs = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    if (++runs > maxRuns) {
+                        return null;
+                    }
+                }
+            }
+            if (runs == 0) {
+                return null;
+            }
+            long[] runValues = new long[runs];
+            int[] runEnds = new int[runs];
+            int run = -1;
+            for (int i = 0; i < values.length; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    run++;
+                    runValues[run] = values[i];
+                }
+                runEnds[run] = i + 1;
+            }
+            return new RunLength(runValues, runEnds);
+        }
+
+        @Override
+        public long get(int row) {
+            int idx = Arrays.binarySearch(runEnds, row + 1);
+            // Exact hit means row is the last row of that run; otherwise use the insertion point
+            return runValues[idx >= 0 ? idx : -idx - 1];
+        }
+
+        @Override
+        public int size() {
+            return runEnds.length == 0 ? 0 : runEnds[runEnds.length - 1];
+        }
+
+        @Override
+        public void forEachRun(RunVisitor visitor) {
+            int start = 0;
+            for (int run = 0; run < runValues.length; run++) {
+                visitor.visit(start, runEnds[run], runValues[run]);
+                start = runEnds[run];
+            }
+        }
+
+        @Override
+        public long encodedBytes() {
+            return (long) runValues.length * (Long.BYTES + Integer.BYTES);
+        }
+
+        @Override
+        public String encoding() {
+            return "rle(" + runValues.length + " runs)";
+        }
+    }
+}
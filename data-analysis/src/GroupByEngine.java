@@ -0,0 +1,174 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Primitive group-by used by SalesAnalyzer.
+ * Each grouping dimension is dictionary-encoded to an int code as rows are
+ * scanned (see DimensionCodes); single-dimension groupings key a LongGroupMap
+ * by that code, and composite groupings pack several codes into one long key
+ * (category x region x month) instead of building a concatenated String per
+ * row. Revenue is summed as exact unscaled longs and only the per-group
+ * results are converted back to BigDecimal, so results equal the
+ * Collectors.groupingBy/BigDecimal::add versions. Reading a price's unscaled
+ * value still allocates a BigInteger per row.
+ *
+ * Every method throws ArithmeticException when a sum overflows a long or a
+ * value does not fit the packed key; callers fall back to BigDecimal.
+ */
+public class GroupByEngine {
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    // Composite key layout: | category (21 bits) | region (21 bits) | month index (22 bits) |
+    private static final int CODE_BITS = 21;
+    private static final int MONTH_BITS = 22;
+    private static final long CODE_MASK = (1L << CODE_BITS) - 1;
+    private static final long MONTH_MASK = (1L << MONTH_BITS) - 1;
+
+    private GroupByEngine() {
+    }
+
+    /**
+     * @return Map of dimension value -> total revenue
+     */
+    public static Map<String, BigDecimal> sumRevenueBy(List<Sale> sales, Function<Sale, String> dimension) {
+        DimensionCodes codes = new DimensionCodes();
+        LongGroupMap groups = new LongGroupMap();
+        for (Sale sale : sales) {
+            addRevenue(groups, codes.encode(dimension.apply(sale)), sale);
+        }
+        Map<String, BigDecimal> result = new HashMap<>();
+        groups.forEach((key, sum, scale, count) -> result.put(codes.decode((int) key), BigDecimal.valueOf(sum, scale)));
+        return result;
+    }
+
+    /**
+     * @return Map of dimension value -> mean revenue per row (2 decimal places, HALF_UP)
+     */
+    public static Map<String, BigDecimal> averageRevenueBy(List<Sale> sales, Function<Sale, String> dimension) {
+        DimensionCodes codes = new DimensionCodes();
+        LongGroupMap groups = new LongGroupMap();
+        for (Sale sale : sales) {
+            addRevenue(groups, codes.encode(dimension.apply(sale)), sale);
+        }
+        Map<String, BigDecimal> result = new HashMap<>();
+        groups.forEach((key, sum, scale, count) -> result.put(codes.decode((int) key),
+                BigDecimal.valueOf(sum, scale).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP)));
+        return result;
+    }
+
+    /**
+     * @return Map of dimension value -> total quantity
+     */
+    public static Map<String, Long> sumQuantityBy(List<Sale> sales, Function<Sale, String> dimension) {
+        DimensionCodes codes = new DimensionCodes();
+        LongGroupMap groups = new LongGroupMap();
+        for (Sale sale : sales) {
+            groups.addLong(codes.encode(dimension.apply(sale)), sale.getQuantity());
+        }
+        Map<String, Long> result = new HashMap<>();
+        groups.forEach((key, sum, scale, count) -> result.put(codes.decode((int) key), sum));
+        return result;
+    }
+
+    /**
+     * Groups by calendar month without formatting a date per row.
+     *
+     * @return Map of Month (YYYY-MM) -> total revenue
+     */
+    public static Map<String, BigDecimal> sumRevenueByMonth(List<Sale> sales) {
+        LongGroupMap groups = new LongGroupMap();
+        for (Sale sale : sales) {
+            addRevenue(groups, monthIndex(sale.getDate()), sale);
+        }
+        Map<String, BigDecimal> result = new HashMap<>();
+        groups.forEach((key, sum, scale, count) -> result.put(formatMonth(key), BigDecimal.valueOf(sum, scale)));
+        return result;
+    }
+
+    /**
+     * Three-way grouping on one packed long key per row.
+     *
+     * @return Map of Category -> Region -> Month (YYYY-MM) -> total revenue
+     */
+    public static Map<String, Map<String, Map<String, BigDecimal>>> sumRevenueByCategoryRegionMonth(
+            List<Sale> sales) {
+        DimensionCodes categories = new DimensionCodes();
+        DimensionCodes regions = new DimensionCodes();
+        LongGroupMap groups = new LongGroupMap();
+        for (Sale sale : sales) {
+            long key = pack(categories.encode(sale.getCategory()), regions.encode(sale.getRegion()),
+                    monthIndex(sale.getDate()));
+            addRevenue(groups, key, sale);
+        }
+        Map<String, Map<String, Map<String, BigDecimal>>> result = new HashMap<>();
+        groups.forEach((key, sum, scale, count) -> result
+                .computeIfAbsent(categories.decode((int) (key >>> (CODE_BITS + MONTH_BITS))), c -> new HashMap<>())
+                .computeIfAbsent(regions.decode((int) ((key >>> MONTH_BITS) & CODE_MASK)), r -> new HashMap<>())
+                .put(formatMonth(key & MONTH_MASK), BigDecimal.valueOf(sum, scale)));
+        return result;
+    }
+
+    // --- Helpers ---
+
+    // Slot in a 256-entry direct-mapped cache (Fibonacci hashing on the top bits)
+    private static int cacheSlot(int hash) {
+        return (hash * 0x9E3779B9) >>> (32 - 8);
+    }
+
+    /**
+     * StringDictionary behind a small direct-mapped front cache compared by
+     * reference. CsvLoader canonicalizes dimension values, so rows of the same
+     * category share one String and a hit costs the String's cached hash and a
+     * reference check instead of a HashMap lookup with equals() and unboxing.
+     * Values that were not canonicalized still work, they just miss the cache.
+     */
+    private static final class DimensionCodes {
+        private final StringDictionary dictionary = new StringDictionary();
+        private final String[] cachedValues = new String[256];
+        private final int[] cachedCodes = new int[256];
+
+        int encode(String value) {
+            int slot = cacheSlot(value.hashCode());
+            if (cachedValues[slot] == value) {
+                return cachedCodes[slot];
+            }
+            int code = dictionary.encode(value);
+            cachedValues[slot] = value;
+            cachedCodes[slot] = code;
+            return code;
+        }
+
+        String decode(int code) {
+            return dictionary.decode(code);
+        }
+    }
+
+    private static void addRevenue(LongGroupMap groups, long key, Sale sale) {
+        BigDecimal price = sale.getUnitPrice();
+        long unscaled = Math.multiplyExact(price.unscaledValue().longValueExact(), (long) sale.getQuantity());
+        groups.addDecimal(key, unscaled, price.scale());
+    }
+
+    static long pack(int categoryCode, int regionCode, long monthIndex) {
+        if (categoryCode > CODE_MASK || regionCode > CODE_MASK || monthIndex < 0 || monthIndex > MONTH_MASK) {
+            throw new ArithmeticException("Group key does not fit the packed layout");
+        }
+        return ((long) categoryCode << (CODE_BITS + MONTH_BITS)) | ((long) regionCode << MONTH_BITS) | monthIndex;
+    }
+
+    // Months since year 0: ordered and dense, so adjacent months are adjacent keys
+    static long monthIndex(LocalDate date) {
+        return date.getYear() * 12L + date.getMonthValue() - 1;
+    }
+
+    private static String formatMonth(long monthIndex) {
+        return LocalDate.of((int) Math.floorDiv(monthIndex, 12), Math.floorMod(monthIndex, 12) + 1, 1)
+                .format(MONTH_FORMATTER);
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * HyperLogLog cardinality sketch for approximate distinct counts.
+ * Uses a fixed array of 2^precision one-byte registers regardless of how many
+ * values are added, and merges losslessly with sketches of the same precision,
+ * so per-group partials can be combined across threads and partitions.
+ */
+public class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision Number of index bits (4-18). Relative error is about
+     *                  1.04 / sqrt(2^precision); 12 gives ~1.6% in 4 KB.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(String value) {
+        addHash(hash64(value));
+    }
+
+    /**
+     * Adds a pre-hashed value. The hash must be well mixed across all 64 bits.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Guard bit caps the rank at 64 - precision + 1 when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Folds another sketch into this one (register-wise max).
+     *
+     * @return this sketch, for use as a Collector combiner
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge sketches with precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return Estimated number of distinct values added
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0.0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1.0 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+
+        // Small-range correction: linear counting is far more accurate while registers are sparse
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * Writes the sketch as its precision followed by the raw registers.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(precision);
+        out.write(registers);
+    }
+
+    public static HyperLogLog readFrom(DataInput in) throws IOException {
+        HyperLogLog sketch = new HyperLogLog(in.readByte());
+        in.readFully(sketch.registers);
+        return sketch;
+    }
+
+    /**
+     * Collector producing one sketch per stream (or per group when used as a
+     * downstream of groupingBy). Parallel partials are combined with merge().
+     */
+    public static <T> Collector<T, ?, HyperLogLog> collector(Function<T, String> valueExtractor, int precision) {
+        return Collector.of(
+                () -> new HyperLogLog(precision),
+                (sketch, item) -> sketch.add(valueExtractor.apply(item)),
+                HyperLogLog::merge,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer,
+     * since String.hashCode() is only 32 bits and poorly distributed.
+     */
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix64(h);
+    }
+
+    static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
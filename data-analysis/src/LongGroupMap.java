@@ -0,0 +1,146 @@
+/**
+ * Open-addressing (linear probing) hash map from a primitive long group key to
+ * primitive accumulators: a long sum with its decimal scale, and a row count.
+ * Keys are dictionary codes or several codes packed into one long, so grouping
+ * never hashes a String or allocates a node or boxed value per entry.
+ *
+ * Decimal sums follow BigDecimal.add scale rules (the result takes the larger
+ * scale, starting from BigDecimal.ZERO), so converted results equal what
+ * reducing(BigDecimal.ZERO, BigDecimal::add) returns. Arithmetic is exact;
+ * overflow throws ArithmeticException so callers can fall back to BigDecimal.
+ */
+public class LongGroupMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private long[] keys;
+    private boolean[] occupied;
+    private long[] sums;
+    private int[] scales;
+    private long[] counts;
+    private int mask;
+    private int size;
+
+    public LongGroupMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedGroups Sizing hint; the table grows as needed
+     */
+    public LongGroupMap(int expectedGroups) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedGroups * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Adds a decimal value (unscaled * 10^-scale) to the group and counts the row.
+     */
+    public void addDecimal(long key, long unscaled, int scale) {
+        int slot = slot(key);
+        // BigDecimal.ZERO identity: a group's scale never drops below 0
+        int targetScale = Math.max(scale, 0);
+        if (targetScale > scales[slot]) {
+            sums[slot] = Math.multiplyExact(sums[slot], powerOfTen(targetScale - scales[slot]));
+            scales[slot] = targetScale;
+        }
+        long value = scale < scales[slot]
+                ? Math.multiplyExact(unscaled, powerOfTen(scales[slot] - scale))
+                : unscaled;
+        sums[slot] = Math.addExact(sums[slot], value);
+        counts[slot]++;
+    }
+
+    /**
+     * Adds an integral value to the group and counts the row.
+     */
+    public void addLong(long key, long value) {
+        int slot = slot(key);
+        sums[slot] = Math.addExact(sums[slot], value);
+        counts[slot]++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every group in table order.
+     */
+    public void forEach(GroupVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (occupied[i]) {
+                visitor.visit(keys[i], sums[i], scales[i], counts[i]);
+            }
+        }
+    }
+
+    public interface GroupVisitor {
+        void visit(long key, long sum, int scale, long count);
+    }
+
+    private int slot(long key) {
+        int index = (int) HyperLogLog.mix64(key) & mask;
+        while (occupied[index]) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size + 1 > (mask + 1) / 2) {
+            grow();
+            return slot(key);
+        }
+        occupied[index] = true;
+        keys[index] = key;
+        size++;
+        return index;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldOccupied = occupied;
+        long[] oldSums = sums;
+        int[] oldScales = scales;
+        long[] oldCounts = counts;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldOccupied[i]) {
+                int index = (int) HyperLogLog.mix64(oldKeys[i]) & mask;
+                while (occupied[index]) {
+                    index = (index + 1) & mask;
+                }
+                occupied[index] = true;
+                keys[index] = oldKeys[i];
+                sums[index] = oldSums[i];
+                scales[index] = oldScales[i];
+                counts[index] = oldCounts[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        occupied = new boolean[capacity];
+        sums = new long[capacity];
+        scales = new int[capacity];
+        counts = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale difference too large: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+}
@@ -1,9 +1,11 @@
 
 import java.io.File;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -14,6 +16,19 @@ public class Main {
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
 
     public static void main(String[] args) {
+        if (args.length > 0 && "--workers".equals(args[0])) {
+            runSharded(args);
+            return;
+        }
+        if (args.length > 0 && "--pipelined".equals(args[0])) {
+            runPipelined(args);
+            return;
+        }
+        if (args.length > 0 && "--dedup".equals(args[0])) {
+            runDeduplicated(args);
+            return;
+        }
+
         String filePath = determineFilePath(args);
 
         // Load Data
@@ -30,14 +45,173 @@ public class Main {
 
         LOGGER.info("Successfully loaded " + sales.size() + " sales records");
         SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        printReport(analyzer);
+        printEnrichedReports(analyzer, args);
+    }
 
+    /**
+     * Enriched reports: joins sales to optional dimension files
+     * (args[1] = product costs, args[2] = region population). With no
+     * arguments, sample dimension files are used (and generated if missing).
+     */
+    private static void printEnrichedReports(SalesAnalyzer analyzer, String[] args) {
+        String productCostsPath = determineDimensionPath(args, 1, "product_costs.csv",
+                DataGenerator::generateProductCosts);
+        String populationPath = determineDimensionPath(args, 2, "region_population.csv",
+                DataGenerator::generateRegionPopulation);
+        if (productCostsPath == null && populationPath == null) {
+            return;
+        }
+
+        System.out.println("\n=========================================");
+        System.out.println("   ENRICHED INSIGHTS");
+        System.out.println("=========================================");
+        if (productCostsPath != null) {
+            DimensionTable productCosts = DimensionTable.load(productCostsPath, "product_name", "unit_cost");
+            printCurrencyReport("\n[QuickBooks] Gross Margin by Category:",
+                    analyzer.getGrossMarginByCategory(productCosts));
+        }
+        if (populationPath != null) {
+            DimensionTable population = DimensionTable.load(populationPath, "region", "population");
+            printCurrencyReport("\nRevenue per Capita by Region:", analyzer.getRevenuePerCapitaByRegion(population));
+        }
+    }
+
+    /**
+     * Functional helper: Dimension file path from args, or the default sample
+     * file when running without arguments. Returns null if none is available.
+     */
+    private static String determineDimensionPath(String[] args, int index, String defaultPath,
+            Consumer<String> generator) {
+        if (args.length > index) {
+            return args[index];
+        }
+        if (args.length > 0) {
+            return null;
+        }
+        if (!new File(defaultPath).exists()) {
+            LOGGER.info("Default dimension file not found. Generating " + defaultPath + "...");
+            generator.accept(defaultPath);
+        }
+        return defaultPath;
+    }
+
+    /**
+     * Sharded mode: java Main --workers N file1.csv [file2.csv ...]
+     * Each worker JVM aggregates a shard of the files; partials are merged here.
+     */
+    private static void runSharded(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java Main --workers <count> <csv> [<csv> ...]");
+            return;
+        }
+
+        int workers;
+        try {
+            workers = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            System.err.println("Error: worker count must be an integer: " + args[1]);
+            return;
+        }
+        List<String> files = Arrays.asList(args).subList(2, args.length);
+
+        System.out.println("Loading " + files.size() + " file(s) across " + workers + " worker(s)...");
+        PartialAggregate report;
+        try {
+            report = new ShardCoordinator(workers).run(files);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            LOGGER.severe("Sharded analysis failed: " + e.getMessage());
+            System.err.println("Error: Sharded analysis failed: " + e.getMessage());
+            return;
+        }
+
+        if (report.getCount() == 0) {
+            LOGGER.severe("No valid sales data found in files: " + files);
+            System.err.println(
+                    "Error: No valid sales data found. Please check the file paths and ensure required headers are present.");
+            return;
+        }
+        printReport(report);
+    }
+
+    /**
+     * Pipelined mode: java Main --pipelined file.csv [parsers] [aggregators]
+     * Overlaps reading, parsing and aggregation, then reports stage utilization.
+     */
+    private static void runPipelined(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java Main --pipelined <csv> [parsers] [aggregators]");
+            return;
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        SalesPipeline pipeline;
+        try {
+            int parsers = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, cores - 2);
+            int aggregators = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+            pipeline = new SalesPipeline(parsers, aggregators);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: invalid pipeline thread counts: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Loading data from " + args[1] + " (pipelined)...");
+        PartialAggregate report = pipeline.run(args[1]);
+        if (report.getCount() == 0) {
+            LOGGER.severe("No valid sales data found in file: " + args[1]);
+            System.err.println(
+                    "Error: No valid sales data found. Please check the file path and ensure required headers are present.");
+            return;
+        }
+
+        System.out.println("\nPipeline Stage Utilization:");
+        System.out.print(pipeline.getUtilizationReport());
+        printReport(report);
+    }
+
+    /**
+     * Dedup mode: java Main --dedup first|last file1.csv [file2.csv ...]
+     * Loads overlapping extracts as one dataset with one row per transaction_id.
+     */
+    private static void runDeduplicated(String[] args) {
+        if (args.length < 3 || !("first".equals(args[1]) || "last".equals(args[1]))) {
+            System.out.println("Usage: java Main --dedup <first|last> <csv> [<csv> ...]");
+            return;
+        }
+
+        TransactionDeduplicator dedup = new TransactionDeduplicator("first".equals(args[1])
+                ? TransactionDeduplicator.Policy.FIRST_WINS
+                : TransactionDeduplicator.Policy.LAST_WINS);
+        List<String> files = Arrays.asList(args).subList(2, args.length);
+
+        System.out.println("Loading " + files.size() + " file(s) with " + args[1] + "-wins dedup...");
+        List<Sale> sales = CsvLoader.loadSalesData(files, dedup);
+        if (sales.isEmpty()) {
+            LOGGER.severe("No valid sales data found in files: " + files);
+            System.err.println(
+                    "Error: No valid sales data found. Please check the file paths and ensure required headers are present.");
+            return;
+        }
+
+        System.out.printf("Kept %d unique transactions, dropped %d duplicate(s)%n",
+                sales.size(), dedup.getDuplicateCount());
+        printReport(new SalesAnalyzer(sales));
+    }
+
+    /**
+     * Functional report generator: Prints the full Prosperity Report.
+     */
+    private static void printReport(SalesReport report) {
         System.out.println("\n--- Sales Analysis Report ---\n");
 
         // Core Analytics
-        printCurrencyReport("1. Total Sales by Category:", analyzer.getTotalSalesByCategory());
-        printCurrencyReport("\n2. Average Sales by Region:", analyzer.getAverageSalesByRegion());
-        printTopProducts("\n3. Top 5 Selling Products (by Quantity):", analyzer.getTopSellingProducts(5));
-        printCurrencyReport("\n4. Sales Trend by Month:", analyzer.getSalesTrendByMonth());
+        printCurrencyReport("1. Total Sales by Category:", report.getTotalSalesByCategory());
+        printCurrencyReport("\n2. Average Sales by Region:", report.getAverageSalesByRegion());
+        printTopProducts("\n3. Top 5 Selling Products (by Quantity):", report.getTopSellingProducts(5));
+        printCurrencyReport("\n4. Sales Trend by Month:", report.getSalesTrendByMonth());
+        printCountReport("\n5. Distinct Products by Region (approx.):", report.getDistinctProductsByRegion());
+        printCurrencyReport("\n6. Median Order Value by Category (approx.):", report.getRevenueQuantileByCategory(0.5));
+        printCurrencyReport("\n7. P95 Order Value by Category (approx.):", report.getRevenueQuantileByCategory(0.95));
 
         // Intuit Prosperity Insights
         System.out.println("\n=========================================");
@@ -45,8 +219,8 @@ public class Main {
         System.out.println("=========================================");
 
         printCurrencyReport("\n[TurboTax] Estimated Tax Liability (10% Rate):",
-                analyzer.getTaxLiabilityByRegion(new BigDecimal("0.10")));
-        printPercentageReport("\n[QuickBooks] Month-over-Month Growth:", analyzer.getMonthOverMonthGrowth());
+                report.getTaxLiabilityByRegion(new BigDecimal("0.10")));
+        printPercentageReport("\n[QuickBooks] Month-over-Month Growth:", report.getMonthOverMonthGrowth());
     }
 
     /**
@@ -58,7 +232,7 @@ public class Main {
             return args[0];
         }
 
-        System.out.println("Usage: java Main <path_to_csv>");
+        System.out.println("Usage: java Main <path_to_csv> [product_costs_csv] [region_population_csv]");
         System.out.println("No file provided. Using default 'sales_data.csv' for demonstration.");
         String defaultPath = "sales_data.csv";
 
@@ -91,6 +265,16 @@ public class Main {
                 .forEach(e -> System.out.printf("  - %s: %+.2f%%%n", e.getKey(), e.getValue()));
     }
 
+    /**
+     * Functional report generator: Counts sorted by value descending.
+     */
+    private static void printCountReport(String title, Map<String, Long> data) {
+        System.out.println(title);
+        data.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                .forEach(e -> System.out.printf("  - %s: %d%n", e.getKey(), e.getValue()));
+    }
+
     /**
      * Functional report generator: Top products by quantity.
      */
@@ -0,0 +1,190 @@
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.logging.Logger;
+
+/**
+ * Off-heap storage backend for sales rows.
+ * Each row is encoded into a fixed 32-byte record inside direct ByteBuffer
+ * chunks, with product/category/region dictionary-encoded to int codes, so the
+ * heap only holds the chunk references and the dictionaries. A 1B-row dataset
+ * costs ~32 GB of native memory but only a few MB of heap.
+ *
+ * Built on direct ByteBuffers rather than the Foreign Function & Memory API
+ * because the project targets JDK 17, where that API is still incubating.
+ *
+ * Lifecycle: append rows from a single thread, read them through
+ * get()/asList(), then close(). close() drops the chunk references and the
+ * native memory is freed when the GC collects the buffers, never while a
+ * reader still holds one; a read that overlaps close() either completes or
+ * throws IllegalStateException. ByteBuffer.allocateDirect itself triggers a
+ * GC when -XX:MaxDirectMemorySize is reached, so closed stores do not pin
+ * native memory that a new store needs.
+ */
+public class OffHeapSalesStore implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(OffHeapSalesStore.class.getName());
+
+    static final int ROW_BYTES = 32;
+    public static final int DEFAULT_ROWS_PER_CHUNK = 1 << 20; // 32 MB per chunk
+
+    // Row layout (byte offsets)
+    private static final int TRANSACTION_ID = 0;
+    private static final int EPOCH_DAY = 4;
+    private static final int PRODUCT = 8;
+    private static final int CATEGORY = 12; // short
+    private static final int REGION = 14; // short
+    private static final int QUANTITY = 16;
+    private static final int PRICE_SCALE = 20;
+    private static final int PRICE_UNSCALED = 24; // long
+
+    private final int rowsPerChunk;
+    // null once closed; a single volatile read per access tells readers whether the store is open
+    private volatile List<ByteBuffer> chunks = new ArrayList<>();
+    private final StringDictionary products = new StringDictionary();
+    private final StringDictionary categories = new StringDictionary();
+    private final StringDictionary regions = new StringDictionary();
+    private long size;
+
+    /**
+     * @param rowsPerChunk Rows per direct buffer; native memory is reserved one
+     *                     chunk at a time as rows are appended.
+     */
+    public OffHeapSalesStore(int rowsPerChunk) {
+        if (rowsPerChunk <= 0 || rowsPerChunk > Integer.MAX_VALUE / ROW_BYTES) {
+            throw new IllegalArgumentException("Invalid rows per chunk: " + rowsPerChunk);
+        }
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
+    public OffHeapSalesStore() {
+        this(DEFAULT_ROWS_PER_CHUNK);
+    }
+
+    /**
+     * Encodes and appends a sale. Not thread-safe.
+     *
+     * @throws IllegalArgumentException if the unit price does not fit the
+     *                                  fixed-width encoding
+     */
+    public void append(Sale sale) {
+        List<ByteBuffer> chunks = openChunks();
+        BigDecimal price = sale.getUnitPrice();
+        long unscaled;
+        try {
+            unscaled = price.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Unit price too large for off-heap encoding: " + price);
+        }
+        int categoryCode = categories.encode(sale.getCategory());
+        int regionCode = regions.encode(sale.getRegion());
+        if (categoryCode > Short.MAX_VALUE || regionCode > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many distinct categories/regions for off-heap encoding");
+        }
+
+        int chunkIndex = (int) (size / rowsPerChunk);
+        if (chunkIndex == chunks.size()) {
+            chunks.add(ByteBuffer.allocateDirect(rowsPerChunk * ROW_BYTES).order(ByteOrder.nativeOrder()));
+        }
+        ByteBuffer chunk = chunks.get(chunkIndex);
+        int base = (int) (size % rowsPerChunk) * ROW_BYTES;
+
+        chunk.putInt(base + TRANSACTION_ID, sale.getTransactionId());
+        chunk.putInt(base + EPOCH_DAY, (int) sale.getDate().toEpochDay());
+        chunk.putInt(base + PRODUCT, products.encode(sale.getProductName()));
+        chunk.putShort(base + CATEGORY, (short) categoryCode);
+        chunk.putShort(base + REGION, (short) regionCode);
+        chunk.putInt(base + QUANTITY, sale.getQuantity());
+        chunk.putInt(base + PRICE_SCALE, price.scale());
+        chunk.putLong(base + PRICE_UNSCALED, unscaled);
+        size++;
+    }
+
+    /**
+     * Decodes a row into a short-lived Sale object.
+     */
+    public Sale get(long row) {
+        List<ByteBuffer> chunks = openChunks();
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range [0, " + size + ")");
+        }
+        ByteBuffer chunk = chunks.get((int) (row / rowsPerChunk));
+        int base = (int) (row % rowsPerChunk) * ROW_BYTES;
+        return new Sale(
+                chunk.getInt(base + TRANSACTION_ID),
+                LocalDate.ofEpochDay(chunk.getInt(base + EPOCH_DAY)),
+                products.decode(chunk.getInt(base + PRODUCT)),
+                categories.decode(chunk.getShort(base + CATEGORY)),
+                regions.decode(chunk.getShort(base + REGION)),
+                chunk.getInt(base + QUANTITY),
+                BigDecimal.valueOf(chunk.getLong(base + PRICE_UNSCALED), chunk.getInt(base + PRICE_SCALE)));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return Native bytes currently reserved by this store
+     */
+    public long offHeapBytes() {
+        List<ByteBuffer> chunks = this.chunks;
+        return chunks == null ? 0 : (long) chunks.size() * rowsPerChunk * ROW_BYTES;
+    }
+
+    /**
+     * Read-only List view that decodes rows on access, so a SalesAnalyzer can
+     * aggregate over the store without the rows ever being resident on heap.
+     * Each stream pass allocates only transient (young-generation) Sale objects.
+     */
+    public List<Sale> asList() {
+        openChunks();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Store has " + size + " rows; List view is limited to "
+                    + Integer.MAX_VALUE);
+        }
+        return new RowView();
+    }
+
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    /**
+     * Drops the direct buffers so the GC can free their native memory.
+     * Idempotent.
+     */
+    @Override
+    public synchronized void close() {
+        long released = offHeapBytes();
+        if (chunks == null) {
+            return;
+        }
+        chunks = null;
+        LOGGER.info("Closed off-heap store: " + released + " native bytes for " + size + " rows left to GC");
+    }
+
+    private List<ByteBuffer> openChunks() {
+        List<ByteBuffer> current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("Off-heap store is closed");
+        }
+        return current;
+    }
+
+    private class RowView extends AbstractList<Sale> implements RandomAccess {
+        @Override
+        public Sale get(int index) {
+            return OffHeapSalesStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return (int) OffHeapSalesStore.this.size;
+        }
+    }
+}
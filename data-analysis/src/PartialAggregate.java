@@ -0,0 +1,213 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Decomposable partial results for every report in SalesReport.
+ * A worker accumulates its shard into one PartialAggregate and serializes it;
+ * the coordinator merges the partials and reads the final report from the
+ * result. Sums and counts merge exactly, so merged values equal what a single
+ * SalesAnalyzer over all rows returns; distinct counts and quantiles merge via
+ * their sketches and stay approximate.
+ */
+public class PartialAggregate implements SalesReport {
+    private static final int MAGIC = 0x53414C45; // "SALE"
+    private static final int VERSION = 1;
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final Map<String, BigDecimal> revenueByCategory = new HashMap<>();
+    private final Map<String, BigDecimal> revenueByRegion = new HashMap<>();
+    private final Map<String, Long> countByRegion = new HashMap<>();
+    private final Map<String, Integer> quantityByProduct = new HashMap<>();
+    private final Map<String, BigDecimal> revenueByMonth = new HashMap<>();
+    private final Map<String, HyperLogLog> productsByRegion = new HashMap<>();
+    private final Map<String, TDigest> revenueDigestByCategory = new HashMap<>();
+    private long count;
+
+    /**
+     * Folds one sale into the partial. Not thread-safe.
+     */
+    public void accumulate(Sale sale) {
+        BigDecimal revenue = sale.getTotalRevenue();
+        revenueByCategory.merge(sale.getCategory(), revenue, BigDecimal::add);
+        revenueByRegion.merge(sale.getRegion(), revenue, BigDecimal::add);
+        countByRegion.merge(sale.getRegion(), 1L, Long::sum);
+        quantityByProduct.merge(sale.getProductName(), sale.getQuantity(), Integer::sum);
+        revenueByMonth.merge(sale.getDate().format(MONTH_FORMATTER), revenue, BigDecimal::add);
+        productsByRegion.computeIfAbsent(sale.getRegion(), k -> new HyperLogLog()).add(sale.getProductName());
+        revenueDigestByCategory.computeIfAbsent(sale.getCategory(), k -> new TDigest()).add(revenue.doubleValue());
+        count++;
+    }
+
+    /**
+     * Folds another partial into this one. The other partial's sketches may be
+     * adopted by reference, so it must not be used afterwards.
+     *
+     * @return this partial
+     */
+    public PartialAggregate merge(PartialAggregate other) {
+        other.revenueByCategory.forEach((k, v) -> revenueByCategory.merge(k, v, BigDecimal::add));
+        other.revenueByRegion.forEach((k, v) -> revenueByRegion.merge(k, v, BigDecimal::add));
+        other.countByRegion.forEach((k, v) -> countByRegion.merge(k, v, Long::sum));
+        other.quantityByProduct.forEach((k, v) -> quantityByProduct.merge(k, v, Integer::sum));
+        other.revenueByMonth.forEach((k, v) -> revenueByMonth.merge(k, v, BigDecimal::add));
+        other.productsByRegion.forEach((k, v) -> productsByRegion.merge(k, v, HyperLogLog::merge));
+        other.revenueDigestByCategory.forEach((k, v) -> revenueDigestByCategory.merge(k, v, TDigest::merge));
+        count += other.count;
+        return this;
+    }
+
+    // --- SalesReport ---
+
+    @Override
+    public Map<String, BigDecimal> getTotalSalesByCategory() {
+        return new HashMap<>(revenueByCategory);
+    }
+
+    @Override
+    public Map<String, BigDecimal> getAverageSalesByRegion() {
+        return revenueByRegion.entrySet().stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        entry -> entry.getValue().divide(BigDecimal.valueOf(countByRegion.get(entry.getKey())), 2,
+                                RoundingMode.HALF_UP),
+                        (a, b) -> a,
+                        LinkedHashMap::new));
+    }
+
+    @Override
+    public List<Map.Entry<String, Integer>> getTopSellingProducts(int n) {
+        return quantityByProduct.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(n)
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<String, BigDecimal> getSalesTrendByMonth() {
+        return new HashMap<>(revenueByMonth);
+    }
+
+    @Override
+    public Map<String, Long> getDistinctProductsByRegion() {
+        return productsByRegion.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().estimate()));
+    }
+
+    @Override
+    public Map<String, BigDecimal> getRevenueQuantileByCategory(double quantile) {
+        return revenueDigestByCategory.entrySet().stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        entry -> BigDecimal.valueOf(entry.getValue().quantile(quantile))
+                                .setScale(2, RoundingMode.HALF_UP)));
+    }
+
+    @Override
+    public Map<String, BigDecimal> getTaxLiabilityByRegion(BigDecimal taxRate) {
+        return revenueByRegion.entrySet().stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        entry -> entry.getValue().multiply(taxRate).setScale(2, RoundingMode.HALF_UP)));
+    }
+
+    @Override
+    public Map<String, BigDecimal> getMonthOverMonthGrowth() {
+        return SalesAnalyzer.monthOverMonthGrowth(revenueByMonth);
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    // --- Wire format ---
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(count);
+        writeDecimals(out, revenueByCategory);
+        writeDecimals(out, revenueByRegion);
+        out.writeInt(countByRegion.size());
+        for (Map.Entry<String, Long> entry : countByRegion.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeInt(quantityByProduct.size());
+        for (Map.Entry<String, Integer> entry : quantityByProduct.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        writeDecimals(out, revenueByMonth);
+        out.writeInt(productsByRegion.size());
+        for (Map.Entry<String, HyperLogLog> entry : productsByRegion.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.writeInt(revenueDigestByCategory.size());
+        for (Map.Entry<String, TDigest> entry : revenueDigestByCategory.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    /**
+     * @throws IOException if the stream is truncated, corrupt or not a partial aggregate
+     */
+    public static PartialAggregate readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a partial aggregate stream");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported partial aggregate version: " + version);
+        }
+        // Corrupt fields surface as validation errors in the sketches or BigDecimal
+        try {
+            PartialAggregate partial = new PartialAggregate();
+            partial.count = in.readLong();
+            readDecimals(in, partial.revenueByCategory);
+            readDecimals(in, partial.revenueByRegion);
+            for (int i = in.readInt(); i > 0; i--) {
+                partial.countByRegion.put(in.readUTF(), in.readLong());
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                partial.quantityByProduct.put(in.readUTF(), in.readInt());
+            }
+            readDecimals(in, partial.revenueByMonth);
+            for (int i = in.readInt(); i > 0; i--) {
+                partial.productsByRegion.put(in.readUTF(), HyperLogLog.readFrom(in));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                partial.revenueDigestByCategory.put(in.readUTF(), TDigest.readFrom(in));
+            }
+            return partial;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt partial aggregate: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeDecimals(DataOutput out, Map<String, BigDecimal> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, BigDecimal> entry : map.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue().toString());
+        }
+    }
+
+    private static void readDecimals(DataInput in, Map<String, BigDecimal> map) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            map.put(in.readUTF(), new BigDecimal(in.readUTF()));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer ring buffer.
+ * Each slot carries a sequence number that tells producers and consumers
+ * whether it is free or filled for the current lap, so offer/poll only
+ * need a single CAS on the shared cursor (Vyukov's bounded MPMC queue).
+ * offer() returns false when full and poll() returns null when empty;
+ * callers decide how to wait, which is where backpressure comes from.
+ */
+public class RingBuffer<T> {
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * @param capacity Number of slots; must be a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two >= 2: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException("Ring buffer does not accept null");
+        }
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    slots[index] = item;
+                    // Volatile write publishes the item to the consumer that reads this sequence
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return The oldest item, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    T item = (T) slots[index];
+                    slots[index] = null;
+                    // Mark the slot free for the producer one lap ahead
+                    sequences.set(index, position + mask + 1);
+                    return item;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
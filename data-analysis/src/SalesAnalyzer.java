@@ -6,8 +6,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -16,7 +21,7 @@ import java.util.stream.IntStream;
  * Demonstrates functional programming principles with immutability and pure
  * functions.
  */
-public class SalesAnalyzer {
+public class SalesAnalyzer implements SalesReport {
         private static final Logger LOGGER = Logger.getLogger(SalesAnalyzer.class.getName());
         private final List<Sale> sales;
 
@@ -31,13 +36,11 @@ public class SalesAnalyzer {
          * @return Map of Category -> Total Revenue
          */
         public Map<String, BigDecimal> getTotalSalesByCategory() {
-                return sales.stream()
-                                .collect(Collectors.groupingBy(
-                                                Sale::getCategory,
-                                                Collectors.mapping(
-                                                                Sale::getTotalRevenue,
-                                                                Collectors.reducing(BigDecimal.ZERO,
-                                                                                BigDecimal::add))));
+                try {
+                        return GroupByEngine.sumRevenueBy(sales, Sale::getCategory);
+                } catch (ArithmeticException e) {
+                        return exactFallback(e, () -> analyzeBy(Sale::getCategory, Sale::getTotalRevenue));
+                }
         }
 
         /**
@@ -46,27 +49,20 @@ public class SalesAnalyzer {
          * @return Map of Region -> Average Revenue
          */
         public Map<String, BigDecimal> getAverageSalesByRegion() {
-                // Group by region, then map to revenue
-                Map<String, List<BigDecimal>> revenuesByRegion = sales.stream()
-                                .collect(Collectors.groupingBy(
-                                                Sale::getRegion,
-                                                Collectors.mapping(Sale::getTotalRevenue, Collectors.toList())));
-
-                // Calculate average using streams
-                return revenuesByRegion.entrySet().stream()
-                                .collect(Collectors.toMap(
-                                                Map.Entry::getKey,
-                                                entry -> {
-                                                        List<BigDecimal> revenues = entry.getValue();
-                                                        if (revenues.isEmpty())
-                                                                return BigDecimal.ZERO;
-                                                        BigDecimal sum = revenues.stream().reduce(BigDecimal.ZERO,
-                                                                        BigDecimal::add);
-                                                        return sum.divide(BigDecimal.valueOf(revenues.size()), 2,
-                                                                        RoundingMode.HALF_UP);
-                                                },
-                                                (a, b) -> a,
-                                                LinkedHashMap::new));
+                try {
+                        return GroupByEngine.averageRevenueBy(sales, Sale::getRegion);
+                } catch (ArithmeticException e) {
+                        return exactFallback(e, () -> {
+                                Map<String, Long> counts = sales.stream()
+                                                .collect(Collectors.groupingBy(Sale::getRegion, Collectors.counting()));
+                                return analyzeBy(Sale::getRegion, Sale::getTotalRevenue).entrySet().stream()
+                                                .collect(Collectors.toMap(
+                                                                Map.Entry::getKey,
+                                                                entry -> entry.getValue().divide(
+                                                                                BigDecimal.valueOf(counts.get(entry.getKey())),
+                                                                                2, RoundingMode.HALF_UP)));
+                        });
+                }
         }
 
         /**
@@ -76,11 +72,9 @@ public class SalesAnalyzer {
          * @return List of Map entries (Product Name -> Total Quantity)
          */
         public List<Map.Entry<String, Integer>> getTopSellingProducts(int n) {
-                return sales.stream()
-                                .collect(Collectors.groupingBy(
-                                                Sale::getProductName,
-                                                Collectors.summingInt(Sale::getQuantity)))
+                return GroupByEngine.sumQuantityBy(sales, Sale::getProductName)
                                 .entrySet().stream()
+                                .map(entry -> Map.entry(entry.getKey(), entry.getValue().intValue()))
                                 .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
                                 .limit(n)
                                 .collect(Collectors.toList());
@@ -92,14 +86,14 @@ public class SalesAnalyzer {
          * @return Map of Month (YYYY-MM) -> Total Revenue
          */
         public Map<String, BigDecimal> getSalesTrendByMonth() {
-                DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
-                return sales.stream()
-                                .collect(Collectors.groupingBy(
-                                                sale -> sale.getDate().format(monthFormatter),
-                                                Collectors.mapping(
-                                                                Sale::getTotalRevenue,
-                                                                Collectors.reducing(BigDecimal.ZERO,
-                                                                                BigDecimal::add))));
+                try {
+                        return GroupByEngine.sumRevenueByMonth(sales);
+                } catch (ArithmeticException e) {
+                        DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
+                        return exactFallback(e, () -> analyzeBy(
+                                        sale -> sale.getDate().format(monthFormatter),
+                                        Sale::getTotalRevenue));
+                }
         }
 
         // --- Intuit Prosperity Features ---
@@ -112,13 +106,13 @@ public class SalesAnalyzer {
          * @return Map of Region -> Estimated Tax
          */
         public Map<String, BigDecimal> getTaxLiabilityByRegion(BigDecimal taxRate) {
-                return sales.stream()
-                                .collect(Collectors.groupingBy(
-                                                Sale::getRegion,
-                                                Collectors.mapping(
-                                                                Sale::getTotalRevenue,
-                                                                Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))))
-                                .entrySet().stream()
+                Map<String, BigDecimal> revenueByRegion;
+                try {
+                        revenueByRegion = GroupByEngine.sumRevenueBy(sales, Sale::getRegion);
+                } catch (ArithmeticException e) {
+                        revenueByRegion = exactFallback(e, () -> analyzeBy(Sale::getRegion, Sale::getTotalRevenue));
+                }
+                return revenueByRegion.entrySet().stream()
                                 .collect(Collectors.toMap(
                                                 Map.Entry::getKey,
                                                 entry -> entry.getValue().multiply(taxRate).setScale(2,
@@ -132,7 +126,14 @@ public class SalesAnalyzer {
          * @return Map of Month -> Growth Percentage (vs previous month)
          */
         public Map<String, BigDecimal> getMonthOverMonthGrowth() {
-                Map<String, BigDecimal> monthlySales = getSalesTrendByMonth();
+                return monthOverMonthGrowth(getSalesTrendByMonth());
+        }
+
+        /**
+         * Helper: Month-over-Month growth from a Month -> Revenue map.
+         * Shared with PartialAggregate so sharded runs report identical growth.
+         */
+        static Map<String, BigDecimal> monthOverMonthGrowth(Map<String, BigDecimal> monthlySales) {
                 List<String> sortedMonths = monthlySales.keySet().stream()
                                 .sorted()
                                 .collect(Collectors.toList());
@@ -152,7 +153,7 @@ public class SalesAnalyzer {
          * Helper: Calculate growth percentage between two values.
          * Pure function - no side effects.
          */
-        private BigDecimal calculateGrowthPercentage(BigDecimal current, BigDecimal previous) {
+        private static BigDecimal calculateGrowthPercentage(BigDecimal current, BigDecimal previous) {
                 if (previous.compareTo(BigDecimal.ZERO) <= 0) {
                         return BigDecimal.ZERO;
                 }
@@ -162,6 +163,42 @@ public class SalesAnalyzer {
                                 .setScale(2, RoundingMode.HALF_UP);
         }
 
+        // --- Multi-Dimensional Grouping ---
+
+        /**
+         * Revenue by category, region and month in one pass, grouped on a
+         * packed primitive key rather than a concatenated String per row.
+         * 
+         * @return Map of Category -> Region -> Month (YYYY-MM) -> Total Revenue
+         */
+        public Map<String, Map<String, Map<String, BigDecimal>>> getRevenueByCategoryRegionMonth() {
+                try {
+                        return GroupByEngine.sumRevenueByCategoryRegionMonth(sales);
+                } catch (ArithmeticException e) {
+                        DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
+                        return exactFallback(e, () -> sales.stream()
+                                        .collect(Collectors.groupingBy(
+                                                        Sale::getCategory,
+                                                        Collectors.groupingBy(
+                                                                        Sale::getRegion,
+                                                                        Collectors.groupingBy(
+                                                                                        sale -> sale.getDate().format(monthFormatter),
+                                                                                        Collectors.mapping(
+                                                                                                        Sale::getTotalRevenue,
+                                                                                                        Collectors.reducing(BigDecimal.ZERO,
+                                                                                                                        BigDecimal::add)))))));
+                }
+        }
+
+        /**
+         * Helper: GroupByEngine sums exact longs; when a total or price does not
+         * fit, recompute the same grouping with BigDecimal instead.
+         */
+        private static <T> T exactFallback(ArithmeticException cause, Supplier<T> bigDecimalGrouping) {
+                LOGGER.fine("Primitive group-by out of range (" + cause.getMessage() + "), using BigDecimal");
+                return bigDecimalGrouping.get();
+        }
+
         // --- Higher-Order Functions (Advanced FP) ---
 
         /**
@@ -184,6 +221,145 @@ public class SalesAnalyzer {
                                                                                 BigDecimal::add))));
         }
 
+        /**
+         * Sketch aggregation - same grouping contract as analyzeBy, but each group
+         * reduces into a fixed-size mergeable sketch (e.g. HyperLogLog, TDigest)
+         * instead of retaining its values.
+         * 
+         * @param grouper Function to extract grouping key
+         * @param sketch  Collector building the per-group sketch
+         * @return Map of group -> sketch
+         */
+        public <A> Map<String, A> sketchBy(
+                        Function<Sale, String> grouper,
+                        Collector<Sale, ?, A> sketch) {
+                return sales.stream()
+                                .collect(Collectors.groupingBy(grouper, sketch));
+        }
+
+        // --- Sketch Aggregates (bounded memory per group) ---
+
+        /**
+         * Approximate number of distinct products sold per region (HyperLogLog).
+         * 
+         * @return Map of Region -> Estimated Distinct Product Count
+         */
+        public Map<String, Long> getDistinctProductsByRegion() {
+                return sketchBy(Sale::getRegion,
+                                HyperLogLog.collector(Sale::getProductName, HyperLogLog.DEFAULT_PRECISION))
+                                .entrySet().stream()
+                                .collect(Collectors.toMap(
+                                                Map.Entry::getKey,
+                                                entry -> entry.getValue().estimate()));
+        }
+
+        /**
+         * Approximate order-value quantile per category (t-digest over
+         * Sale::getTotalRevenue).
+         * 
+         * @param quantile Quantile in [0, 1], e.g. 0.5 for median, 0.95 for p95
+         * @return Map of Category -> Estimated Order Value at the quantile
+         */
+        public Map<String, BigDecimal> getRevenueQuantileByCategory(double quantile) {
+                return sketchBy(Sale::getCategory,
+                                TDigest.collector(sale -> sale.getTotalRevenue().doubleValue(),
+                                                TDigest.DEFAULT_COMPRESSION))
+                                .entrySet().stream()
+                                .collect(Collectors.toMap(
+                                                Map.Entry::getKey,
+                                                entry -> BigDecimal.valueOf(entry.getValue().quantile(quantile))
+                                                                .setScale(2, RoundingMode.HALF_UP)));
+        }
+
+        // --- Dimension Joins (broadcast hash join during the scan) ---
+
+        /**
+         * Join-and-aggregate in a single pass: each row probes the dimension
+         * table by joinKey and the matched value is handed to the mapper, so no
+         * enriched copy of the data is materialized. Inner-join semantics: rows
+         * without a match are excluded and counted in a warning.
+         * 
+         * @param grouper   Function to extract grouping key
+         * @param joinKey   Function to extract the dimension key from a sale
+         * @param dimension Build-side lookup table
+         * @param mapper    (sale, dimension value) -> value to aggregate
+         * @return Map of grouped results
+         */
+        public Map<String, BigDecimal> analyzeByJoin(
+                        Function<Sale, String> grouper,
+                        Function<Sale, String> joinKey,
+                        DimensionTable dimension,
+                        BiFunction<Sale, BigDecimal, BigDecimal> mapper) {
+                LongAdder unmatched = new LongAdder();
+                Map<String, BigDecimal> result = sales.stream()
+                                .map(sale -> {
+                                        BigDecimal dimensionValue = dimension.get(joinKey.apply(sale));
+                                        if (dimensionValue == null) {
+                                                unmatched.increment();
+                                                return null;
+                                        }
+                                        return Map.entry(grouper.apply(sale), mapper.apply(sale, dimensionValue));
+                                })
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.groupingBy(
+                                                Map.Entry::getKey,
+                                                Collectors.mapping(
+                                                                Map.Entry::getValue,
+                                                                Collectors.reducing(BigDecimal.ZERO,
+                                                                                BigDecimal::add))));
+                if (unmatched.sum() > 0) {
+                        LOGGER.warning("Join excluded " + unmatched.sum() + " records with no dimension match");
+                }
+                return result;
+        }
+
+        /**
+         * QuickBooks Feature: Gross margin (revenue - cost of goods) by category,
+         * joining each sale to its product's unit cost during the scan.
+         * 
+         * @param productCosts product_name -> unit_cost
+         * @return Map of Category -> Gross Margin
+         */
+        public Map<String, BigDecimal> getGrossMarginByCategory(DimensionTable productCosts) {
+                return analyzeByJoin(
+                                Sale::getCategory,
+                                Sale::getProductName,
+                                productCosts,
+                                (sale, unitCost) -> sale.getUnitPrice().subtract(unitCost)
+                                                .multiply(BigDecimal.valueOf(sale.getQuantity())));
+        }
+
+        /**
+         * Revenue per resident by region. Revenue is aggregated in one scan and
+         * the (region-grain) result is joined to population afterwards. Regions
+         * without a positive population are excluded and named in a warning.
+         * 
+         * @param regionPopulation region -> population
+         * @return Map of Region -> Revenue per Capita (4 decimal places)
+         */
+        public Map<String, BigDecimal> getRevenuePerCapitaByRegion(DimensionTable regionPopulation) {
+                Map<Boolean, List<Map.Entry<String, BigDecimal>>> byMatch = analyzeBy(Sale::getRegion, Sale::getTotalRevenue)
+                                .entrySet().stream()
+                                .collect(Collectors.partitioningBy(entry -> {
+                                        BigDecimal population = regionPopulation.get(entry.getKey());
+                                        return population != null && population.signum() > 0;
+                                }));
+                List<String> unmatched = byMatch.get(false).stream()
+                                .map(Map.Entry::getKey)
+                                .sorted()
+                                .collect(Collectors.toList());
+                if (!unmatched.isEmpty()) {
+                        LOGGER.warning("Per-capita report excluded " + unmatched.size()
+                                        + " region(s) with no population: " + unmatched);
+                }
+                return byMatch.get(true).stream()
+                                .collect(Collectors.toMap(
+                                                Map.Entry::getKey,
+                                                entry -> entry.getValue().divide(
+                                                                regionPopulation.get(entry.getKey()), 4,
+                                                                RoundingMode.HALF_UP)));
+        }
+
         /**
          * Functional filter - returns new analyzer with filtered data.
          * Demonstrates immutability and composability.
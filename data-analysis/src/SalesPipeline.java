@@ -0,0 +1,368 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pipelined load-and-aggregate.
+ * One reader thread batches raw lines, N parser threads turn line batches into
+ * Sale batches, and M aggregator threads fold them into PartialAggregates that
+ * are merged at the end, so I/O, parsing and aggregation overlap. Stages are
+ * connected by bounded RingBuffers of batches: a full buffer stalls the stage
+ * upstream of it, which bounds memory to roughly
+ * 2 * ringCapacity * batchSize rows in flight.
+ *
+ * Each stage records how long its threads spent working versus waiting on a
+ * full or empty buffer; the stage with the highest utilization is the
+ * bottleneck on the current machine.
+ */
+public class SalesPipeline {
+    private static final Logger LOGGER = Logger.getLogger(SalesPipeline.class.getName());
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_RING_CAPACITY = 64;
+    private static final int SPIN_LIMIT = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    // End-of-stream markers, compared by identity
+    private static final List<String> END_OF_LINES = new ArrayList<>(0);
+    private static final List<Sale> END_OF_ROWS = new ArrayList<>(0);
+
+    private final int parserThreads;
+    private final int aggregatorThreads;
+    private final int batchSize;
+    private final int ringCapacity;
+    private List<Stage> lastStages = List.of();
+    private volatile boolean aborted;
+    // First stage failure; other stages then fail with CancellationException
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    public SalesPipeline(int parserThreads, int aggregatorThreads) {
+        this(parserThreads, aggregatorThreads, DEFAULT_BATCH_SIZE, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * @param ringCapacity Batches per ring buffer; must be a power of two
+     */
+    public SalesPipeline(int parserThreads, int aggregatorThreads, int batchSize, int ringCapacity) {
+        if (parserThreads <= 0 || aggregatorThreads <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Thread counts and batch size must be positive");
+        }
+        if (ringCapacity < 2 || Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two >= 2: " + ringCapacity);
+        }
+        this.parserThreads = parserThreads;
+        this.aggregatorThreads = aggregatorThreads;
+        this.batchSize = batchSize;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Loads and aggregates a CSV file. Header and line handling match
+     * CsvLoader: missing headers yield an empty result, malformed lines are
+     * logged and skipped, and a read error keeps the rows read so far.
+     *
+     * @param filepath The path to the CSV file.
+     * @return Aggregate over every valid row
+     * @throws IllegalStateException if a stage fails unexpectedly
+     */
+    public PartialAggregate run(String filepath) {
+        lastStages = List.of();
+        aborted = false;
+        firstFailure.set(null);
+
+        BufferedReader br;
+        try {
+            br = CsvLoader.openReader(filepath);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading file: " + filepath, e);
+            return new PartialAggregate();
+        }
+        Map<String, Integer> headerMap = readHeader(filepath, br);
+        if (headerMap == null) {
+            return new PartialAggregate();
+        }
+        int maxIndex = Collections.max(headerMap.values());
+
+        RingBuffer<List<String>> lineBatches = new RingBuffer<>(ringCapacity);
+        RingBuffer<List<Sale>> rowBatches = new RingBuffer<>(ringCapacity);
+        AtomicInteger activeParsers = new AtomicInteger(parserThreads);
+        Stage reader = new Stage("reader", 1);
+        Stage parser = new Stage("parser", parserThreads);
+        Stage aggregator = new Stage("aggregator", aggregatorThreads);
+
+        ExecutorService pool = Executors.newFixedThreadPool(1 + parserThreads + aggregatorThreads);
+        List<Future<?>> stageFutures = new ArrayList<>();
+        List<Future<PartialAggregate>> partials = new ArrayList<>();
+        try {
+            Future<Long> lineBatchCount = pool.submit(() -> reader.time(
+                    timer -> readLines(filepath, br, lineBatches, timer)));
+            stageFutures.add(lineBatchCount);
+            for (int i = 0; i < parserThreads; i++) {
+                stageFutures.add(pool.submit(() -> parser.time(timer -> {
+                    parseLines(headerMap, maxIndex, lineBatches, rowBatches, activeParsers, timer);
+                    return null;
+                })));
+            }
+            for (int i = 0; i < aggregatorThreads; i++) {
+                partials.add(pool.submit(() -> aggregator.time(timer -> aggregate(rowBatches, timer))));
+            }
+
+            PartialAggregate result = new PartialAggregate();
+            for (Future<PartialAggregate> partial : partials) {
+                result.merge(partial.get());
+            }
+            for (Future<?> future : stageFutures) {
+                future.get();
+            }
+
+            if (lineBatchCount.get() == 0) {
+                // Every stage just started and stopped; its utilization would read as 100% busy
+                LOGGER.info("Pipeline processed 0 records: no data rows, utilization not reported");
+                return result;
+            }
+            lastStages = List.of(reader, parser, aggregator);
+            LOGGER.info("Pipeline processed " + result.getCount() + " records\n" + getUtilizationReport());
+            return result;
+        } catch (ExecutionException e) {
+            aborted = true;
+            // Futures are awaited in a fixed order, so report the root cause rather than a cancellation
+            Throwable cause = firstFailure.get() != null ? firstFailure.get() : e.getCause();
+            throw new IllegalStateException("Pipeline stage failed: " + cause, cause);
+        } catch (InterruptedException e) {
+            aborted = true;
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running pipeline", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return Stage name -> fraction of thread time spent working (0-1) from
+     *         the last run, in pipeline order; empty if no data rows flowed
+     */
+    public Map<String, Double> getStageUtilization() {
+        Map<String, Double> utilization = new LinkedHashMap<>();
+        for (Stage stage : lastStages) {
+            utilization.put(stage.name, stage.utilization());
+        }
+        return utilization;
+    }
+
+    /**
+     * @return Human-readable utilization per stage, flagging the bottleneck
+     */
+    public String getUtilizationReport() {
+        Stage bottleneck = lastStages.stream()
+                .max(Comparator.comparingDouble(Stage::utilization))
+                .orElse(null);
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : lastStages) {
+            sb.append(String.format("  - %s (%d thread%s): %.1f%% busy%s%n",
+                    stage.name, stage.threads, stage.threads == 1 ? "" : "s", stage.utilization() * 100,
+                    stage == bottleneck ? "  <- bottleneck" : ""));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads and validates the header. On success br is left open for the
+     * reader stage, which takes ownership; otherwise br is closed here so a
+     * failed header read does not leak the file or a decompressor thread.
+     *
+     * @return Header name -> column index, or null if the run should stop
+     */
+    private static Map<String, Integer> readHeader(String filepath, BufferedReader br) {
+        Map<String, Integer> headerMap = null;
+        try {
+            String headerLine = br.readLine();
+            if (headerLine == null) {
+                LOGGER.severe("CSV file is empty");
+            } else {
+                headerMap = CsvLoader.parseHeader(headerLine);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading file: " + filepath, e);
+        } finally {
+            if (headerMap == null) {
+                try {
+                    br.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Error closing file: " + filepath, e);
+                }
+            }
+        }
+        return headerMap;
+    }
+
+    // --- Stages ---
+
+    /**
+     * @return Number of line batches handed to the parsers
+     */
+    private long readLines(String filepath, BufferedReader br, RingBuffer<List<String>> out, WaitTimer timer) {
+        long batches = 0;
+        try (br) {
+            List<String> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = br.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == batchSize) {
+                    put(out, batch, timer);
+                    batches++;
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(out, batch, timer);
+                batches++;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading file: " + filepath, e);
+        } finally {
+            for (int i = 0; i < parserThreads; i++) {
+                put(out, END_OF_LINES, timer);
+            }
+        }
+        return batches;
+    }
+
+    private void parseLines(Map<String, Integer> headerMap, int maxIndex, RingBuffer<List<String>> in,
+            RingBuffer<List<Sale>> out, AtomicInteger activeParsers, WaitTimer timer) {
+        try {
+            List<String> lines;
+            while ((lines = take(in, timer)) != END_OF_LINES) {
+                List<Sale> rows = new ArrayList<>(lines.size());
+                for (String line : lines) {
+                    Sale sale = CsvLoader.parseLine(line, headerMap, maxIndex);
+                    if (sale != null) {
+                        rows.add(sale);
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    put(out, rows, timer);
+                }
+            }
+        } finally {
+            // The last parser out tells every aggregator the stream is done
+            if (activeParsers.decrementAndGet() == 0) {
+                for (int i = 0; i < aggregatorThreads; i++) {
+                    put(out, END_OF_ROWS, timer);
+                }
+            }
+        }
+    }
+
+    private PartialAggregate aggregate(RingBuffer<List<Sale>> in, WaitTimer timer) {
+        PartialAggregate partial = new PartialAggregate();
+        List<Sale> rows;
+        while ((rows = take(in, timer)) != END_OF_ROWS) {
+            for (Sale sale : rows) {
+                partial.accumulate(sale);
+            }
+        }
+        return partial;
+    }
+
+    // --- Backpressure ---
+
+    private <T> void put(RingBuffer<T> ring, T item, WaitTimer timer) {
+        if (ring.offer(item)) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (int spins = 0; !ring.offer(item); spins++) {
+            backoff(spins);
+        }
+        timer.waitNanos += System.nanoTime() - start;
+    }
+
+    private <T> T take(RingBuffer<T> ring, WaitTimer timer) {
+        T item = ring.poll();
+        if (item != null) {
+            return item;
+        }
+        long start = System.nanoTime();
+        for (int spins = 0; (item = ring.poll()) == null; spins++) {
+            backoff(spins);
+        }
+        timer.waitNanos += System.nanoTime() - start;
+        return item;
+    }
+
+    private void backoff(int spins) {
+        if (aborted || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Pipeline aborted");
+        }
+        if (spins < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Per-thread wait accumulator; owned by a single stage thread.
+     */
+    private static final class WaitTimer {
+        long waitNanos;
+    }
+
+    private interface StageTask<R> {
+        R run(WaitTimer timer);
+    }
+
+    /**
+     * Wall and wait time summed over every thread of one stage.
+     */
+    private final class Stage {
+        private final String name;
+        private final int threads;
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        <R> R time(StageTask<R> task) {
+            WaitTimer timer = new WaitTimer();
+            long start = System.nanoTime();
+            try {
+                return task.run(timer);
+            } catch (RuntimeException | Error e) {
+                if (!(e instanceof CancellationException)) {
+                    firstFailure.compareAndSet(null, e);
+                }
+                // Release the other stages instead of leaving them blocked on a buffer
+                aborted = true;
+                throw e;
+            } finally {
+                totalNanos.add(System.nanoTime() - start);
+                waitNanos.add(timer.waitNanos);
+            }
+        }
+
+        double utilization() {
+            long total = totalNanos.sum();
+            return total == 0 ? 0.0 : (double) (total - waitNanos.sum()) / total;
+        }
+    }
+}
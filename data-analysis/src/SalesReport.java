@@ -0,0 +1,29 @@
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The set of results printed in the Prosperity Report.
+ * Implemented by SalesAnalyzer (computed from in-memory rows) and by
+ * PartialAggregate (merged from shard partials), so Main can print either.
+ */
+public interface SalesReport {
+
+    Map<String, BigDecimal> getTotalSalesByCategory();
+
+    Map<String, BigDecimal> getAverageSalesByRegion();
+
+    List<Map.Entry<String, Integer>> getTopSellingProducts(int n);
+
+    Map<String, BigDecimal> getSalesTrendByMonth();
+
+    Map<String, Long> getDistinctProductsByRegion();
+
+    Map<String, BigDecimal> getRevenueQuantileByCategory(double quantile);
+
+    Map<String, BigDecimal> getTaxLiabilityByRegion(BigDecimal taxRate);
+
+    Map<String, BigDecimal> getMonthOverMonthGrowth();
+
+    long getCount();
+}
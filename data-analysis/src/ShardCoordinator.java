@@ -0,0 +1,168 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+
+/**
+ * Scatter-gather coordinator for sharded analysis.
+ * Splits the input files round-robin into one shard per worker, runs each
+ * shard in its own ShardWorker JVM, reads the serialized PartialAggregate back
+ * over the worker's stdout pipe, and merges the partials. A shard whose worker
+ * exits non-zero, times out, or returns a truncated/corrupt partial is retried
+ * in a fresh process up to maxAttempts times before the run fails.
+ */
+public class ShardCoordinator {
+    private static final Logger LOGGER = Logger.getLogger(ShardCoordinator.class.getName());
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_TIMEOUT_SECONDS = 600;
+
+    private final int workerCount;
+    private final int maxAttempts;
+    private final long timeoutSeconds;
+    // (shard files, attempt number) -> worker process to launch
+    private final BiFunction<List<String>, Integer, ProcessBuilder> launcher;
+
+    public ShardCoordinator(int workerCount) {
+        this(workerCount, DEFAULT_MAX_ATTEMPTS, DEFAULT_TIMEOUT_SECONDS, ShardCoordinator::workerProcess);
+    }
+
+    ShardCoordinator(int workerCount, int maxAttempts, long timeoutSeconds,
+            BiFunction<List<String>, Integer, ProcessBuilder> launcher) {
+        if (workerCount <= 0 || maxAttempts <= 0 || timeoutSeconds <= 0) {
+            throw new IllegalArgumentException("Worker count, attempts and timeout must be positive");
+        }
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+        this.timeoutSeconds = timeoutSeconds;
+        this.launcher = launcher;
+    }
+
+    /**
+     * Runs every shard and merges the results.
+     *
+     * @param files CSV files to analyze
+     * @return Merged partial over all files
+     * @throws IllegalStateException if any shard fails on every attempt
+     */
+    public PartialAggregate run(List<String> files) {
+        List<List<String>> shards = partition(files, workerCount);
+        LOGGER.info("Running " + files.size() + " files across " + shards.size() + " worker(s)");
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, shards.size()));
+        // One drain thread per shard: each shard has at most one live worker, so
+        // every worker's stdout is read as soon as it starts writing
+        ExecutorService drains = Executors.newFixedThreadPool(Math.max(1, shards.size()));
+        try {
+            List<Future<PartialAggregate>> futures = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                int shardIndex = i;
+                futures.add(pool.submit(() -> runShard(shardIndex, shards.get(shardIndex), drains)));
+            }
+
+            PartialAggregate result = new PartialAggregate();
+            for (Future<PartialAggregate> future : futures) {
+                result.merge(future.get());
+            }
+            LOGGER.info("Merged " + result.getCount() + " records from " + shards.size() + " shard(s)");
+            return result;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard workers", e);
+        } finally {
+            pool.shutdownNow();
+            drains.shutdownNow();
+        }
+    }
+
+    static List<List<String>> partition(List<String> files, int workerCount) {
+        int shardCount = Math.min(workerCount, files.size());
+        List<List<String>> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            shards.get(i % shardCount).add(files.get(i));
+        }
+        return shards;
+    }
+
+    private PartialAggregate runShard(int shardIndex, List<String> files, ExecutorService drains)
+            throws IOException {
+        IOException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return runWorker(files, attempt, drains);
+            } catch (IOException e) {
+                lastFailure = e;
+                LOGGER.warning("Shard " + shardIndex + " attempt " + attempt + "/" + maxAttempts
+                        + " failed: " + e.getMessage());
+            }
+        }
+        throw new IOException("Shard " + shardIndex + " " + files + " failed after " + maxAttempts
+                + " attempts", lastFailure);
+    }
+
+    private PartialAggregate runWorker(List<String> files, int attempt, ExecutorService drains)
+            throws IOException {
+        Process process = launcher.apply(files, attempt)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        // Drain stdout concurrently so a large partial cannot block the worker on a full pipe.
+        // Runs on the coordinator's own drain pool, not the common pool, which may
+        // have fewer threads than there are workers
+        CompletableFuture<byte[]> output = CompletableFuture.supplyAsync(() -> {
+            try {
+                return process.getInputStream().readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, drains);
+
+        try {
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("Worker timed out after " + timeoutSeconds + "s");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("Worker exited with code " + process.exitValue());
+            }
+            byte[] bytes = output.get(timeoutSeconds, TimeUnit.SECONDS);
+            return PartialAggregate.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for worker", e);
+        } catch (ExecutionException | TimeoutException e) {
+            process.destroyForcibly();
+            throw new IOException("Failed to read worker output: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Launches ShardWorker on the same JVM binary and classpath as this process.
+     */
+    static ProcessBuilder workerProcess(List<String> files, int attempt) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.addAll(files);
+        return new ProcessBuilder(command);
+    }
+}
@@ -0,0 +1,33 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Worker process for sharded analysis.
+ * Loads the CSV files given as arguments into a single PartialAggregate and
+ * writes it in binary form to stdout for the ShardCoordinator. Logging goes to
+ * stderr, so stdout carries nothing but the partial. A file that cannot be
+ * read exits with status 1 and no output, so the coordinator retries the shard
+ * instead of merging an incomplete partial.
+ */
+public class ShardWorker {
+    private static final Logger LOGGER = Logger.getLogger(ShardWorker.class.getName());
+
+    public static void main(String[] args) throws IOException {
+        PartialAggregate partial = new PartialAggregate();
+        for (String file : args) {
+            try {
+                int loaded = CsvLoader.readSalesData(file, partial::accumulate);
+                LOGGER.info("Shard worker loaded " + loaded + " records from " + file);
+            } catch (IOException e) {
+                LOGGER.severe("Shard worker failed to read " + file + ": " + e);
+                System.exit(1);
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        partial.writeTo(out);
+        out.flush();
+    }
+}
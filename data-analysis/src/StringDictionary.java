@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense int codes (0, 1, 2, ...) to distinct strings in first-seen
+ * order. Low-cardinality columns such as category and region can then be
+ * stored and grouped as small ints instead of String references.
+ * Not thread-safe for concurrent encode(); decode() is safe once loading is done.
+ */
+public class StringDictionary {
+    public static final int NOT_FOUND = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @return The existing code for value, or a newly assigned one
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * @return The code for value, or NOT_FOUND if it was never encoded
+     */
+    public int lookup(String value) {
+        Integer code = codes.get(value);
+        return code == null ? NOT_FOUND : code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * Merging t-digest for approximate quantiles.
+ * Incoming values are buffered and periodically folded into a sorted set of
+ * weighted centroids whose sizes are bounded by the arcsine scale function,
+ * so memory stays at O(compression) per digest and tail quantiles (p95, p99)
+ * stay accurate. Digests merge by re-compressing their combined centroids.
+ */
+public class TDigest {
+    public static final double DEFAULT_COMPRESSION = 100.0;
+
+    private final double compression;
+
+    // Compressed centroids, sorted by mean; only the first centroidCount entries are valid
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int centroidCount;
+    // Output arrays for the next compress(); swapped with means/weights after each one
+    private double[] scratchMeans = new double[0];
+    private double[] scratchWeights = new double[0];
+
+    // Unmerged (value, weight) pairs
+    private final double[] bufferValues;
+    private final double[] bufferWeights;
+    private int bufferCount;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param compression Accuracy/size trade-off; the digest keeps at most
+     *                    about this many centroids.
+     */
+    public TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("Compression must be at least 10: " + compression);
+        }
+        this.compression = compression;
+        int bufferSize = (int) (5 * compression);
+        this.bufferValues = new double[bufferSize];
+        this.bufferWeights = new double[bufferSize];
+    }
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public void add(double value) {
+        add(value, 1.0);
+    }
+
+    private void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a t-digest");
+        }
+        if (bufferCount == bufferValues.length) {
+            compress();
+        }
+        bufferValues[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Folds another digest into this one.
+     *
+     * @return this digest, for use as a Collector combiner
+     */
+    public TDigest merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroidCount; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        // Centroid means lose the true extremes, so carry them over explicitly
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long size() {
+        return Math.round(totalWeight);
+    }
+
+    /**
+     * @param q Quantile in [0, 1], e.g. 0.5 for the median
+     * @return Estimated value at q, or NaN if the digest is empty
+     */
+    public double quantile(double q) {
+        if (q < 0.0 || q > 1.0) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        compress();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1) {
+            return means[0];
+        }
+
+        double index = q * totalWeight;
+        if (index <= weights[0] / 2) {
+            return interpolate(index, 0, min, weights[0] / 2, means[0]);
+        }
+
+        // Walk centroid centres and interpolate between the pair that brackets the index
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (index <= cumulative + gap) {
+                return interpolate(index, cumulative, means[i], cumulative + gap, means[i + 1]);
+            }
+            cumulative += gap;
+        }
+        return interpolate(index, cumulative, means[centroidCount - 1], totalWeight, max);
+    }
+
+    public int centroidCount() {
+        compress();
+        return centroidCount;
+    }
+
+    /**
+     * Writes the compressed centroids plus the exact min/max.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        compress();
+        out.writeDouble(compression);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(centroidCount);
+        for (int i = 0; i < centroidCount; i++) {
+            out.writeDouble(means[i]);
+            out.writeDouble(weights[i]);
+        }
+    }
+
+    public static TDigest readFrom(DataInput in) throws IOException {
+        TDigest digest = new TDigest(in.readDouble());
+        double min = in.readDouble();
+        double max = in.readDouble();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            digest.add(in.readDouble(), in.readDouble());
+        }
+        digest.min = min;
+        digest.max = max;
+        return digest;
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1) {
+        if (x1 <= x0) {
+            return y0;
+        }
+        return y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+    }
+
+    /**
+     * Merges buffered points into the centroid list in a single sorted sweep.
+     * The buffer is sorted in place and merged with the already-sorted
+     * centroids into reusable scratch arrays, so a compress allocates nothing
+     * once the scratch arrays have grown to size.
+     */
+    private void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+        sortBuffer(0, bufferCount - 1);
+        int n = centroidCount + bufferCount;
+        if (scratchMeans.length < n) {
+            scratchMeans = new double[n];
+            scratchWeights = new double[n];
+        }
+        double[] newMeans = scratchMeans;
+        double[] newWeights = scratchWeights;
+
+        // Two-way merge of centroids (i) and buffer (j) by mean; centroids first on ties
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        double weightSoFar = 0.0;
+        double kLeft = scale(0.0);
+        for (int k = 0; k < n; k++) {
+            double mean;
+            double weight;
+            if (j == bufferCount || (i < centroidCount && means[i] <= bufferValues[j])) {
+                mean = means[i];
+                weight = weights[i++];
+            } else {
+                mean = bufferValues[j];
+                weight = bufferWeights[j++];
+            }
+            if (k == 0) {
+                newMeans[0] = mean;
+                newWeights[0] = weight;
+                continue;
+            }
+            double proposed = newWeights[count] + weight;
+            double qRight = (weightSoFar + proposed) / totalWeight;
+            if (scale(qRight) - kLeft <= 1.0) {
+                newMeans[count] += (mean - newMeans[count]) * weight / proposed;
+                newWeights[count] = proposed;
+            } else {
+                weightSoFar += newWeights[count];
+                kLeft = scale(weightSoFar / totalWeight);
+                count++;
+                newMeans[count] = mean;
+                newWeights[count] = weight;
+            }
+        }
+        bufferCount = 0;
+        centroidCount = count + 1;
+        // The old centroid arrays become the next scratch space
+        scratchMeans = means;
+        scratchWeights = weights;
+        means = newMeans;
+        weights = newWeights;
+    }
+
+    /**
+     * Sorts buffered (value, weight) pairs by value: quicksort on the two
+     * parallel primitive arrays, with insertion sort for short ranges.
+     */
+    private void sortBuffer(int lo, int hi) {
+        while (hi - lo >= 16) {
+            double pivot = bufferValues[(lo + hi) >>> 1];
+            int left = lo;
+            int right = hi;
+            while (left <= right) {
+                while (bufferValues[left] < pivot) {
+                    left++;
+                }
+                while (bufferValues[right] > pivot) {
+                    right--;
+                }
+                if (left <= right) {
+                    swapBuffer(left++, right--);
+                }
+            }
+            // Recurse into the smaller side so the stack depth stays logarithmic
+            if (right - lo < hi - left) {
+                sortBuffer(lo, right);
+                lo = left;
+            } else {
+                sortBuffer(left, hi);
+                hi = right;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            double value = bufferValues[i];
+            double weight = bufferWeights[i];
+            int j = i - 1;
+            for (; j >= lo && bufferValues[j] > value; j--) {
+                bufferValues[j + 1] = bufferValues[j];
+                bufferWeights[j + 1] = bufferWeights[j];
+            }
+            bufferValues[j + 1] = value;
+            bufferWeights[j + 1] = weight;
+        }
+    }
+
+    private void swapBuffer(int a, int b) {
+        double value = bufferValues[a];
+        bufferValues[a] = bufferValues[b];
+        bufferValues[b] = value;
+        double weight = bufferWeights[a];
+        bufferWeights[a] = bufferWeights[b];
+        bufferWeights[b] = weight;
+    }
+
+    /**
+     * k1 scale function: centroids are small near the tails and large near the median.
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1.0, q) - 1);
+    }
+
+    /**
+     * Collector producing one digest per stream (or per group when used as a
+     * downstream of groupingBy). Parallel partials are combined with merge().
+     */
+    public static <T> Collector<T, ?, TDigest> collector(ToDoubleFunction<T> valueExtractor, double compression) {
+        return Collector.of(
+                () -> new TDigest(compression),
+                (digest, item) -> digest.add(valueExtractor.applyAsDouble(item)),
+                TDigest::merge,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+}
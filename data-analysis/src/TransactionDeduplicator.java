@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Drops rows whose transaction_id was already seen, e.g. when overlapping
+ * extracts are loaded together. Ids are tracked in a TransactionIdSet, so
+ * memory stays bounded by the id range rather than the row count.
+ *
+ * FIRST_WINS keeps the earliest row for an id and can run while streaming
+ * (see filter()). LAST_WINS keeps the latest row for an id, which needs the
+ * whole dataset in one deduplicate() call. An instance remembers every id it
+ * has seen, so use one instance per dataset.
+ */
+public class TransactionDeduplicator {
+    public enum Policy {
+        FIRST_WINS, LAST_WINS
+    }
+
+    private final Policy policy;
+    private final TransactionIdSet seen = new TransactionIdSet();
+    private long duplicates;
+
+    public TransactionDeduplicator(Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Streaming first-wins dedup: wraps a sink so only the first row for each
+     * transaction id reaches it. One filter can be shared across several files.
+     *
+     * @throws IllegalStateException if the policy is LAST_WINS
+     */
+    public Consumer<Sale> filter(Consumer<Sale> sink) {
+        if (policy != Policy.FIRST_WINS) {
+            throw new IllegalStateException("Streaming dedup requires FIRST_WINS, not " + policy);
+        }
+        return sale -> {
+            if (seen.add(sale.getTransactionId())) {
+                sink.accept(sale);
+            } else {
+                duplicates++;
+            }
+        };
+    }
+
+    /**
+     * @param sales Rows in load order
+     * @return One row per transaction id, kept rows in their original order
+     * @throws IllegalStateException for LAST_WINS if this instance already saw rows
+     */
+    public List<Sale> deduplicate(List<Sale> sales) {
+        List<Sale> kept = new ArrayList<>();
+        if (policy == Policy.FIRST_WINS) {
+            sales.forEach(filter(kept::add));
+            return kept;
+        }
+
+        if (seen.size() > 0) {
+            throw new IllegalStateException("LAST_WINS needs the whole dataset in a single call");
+        }
+        // Scanning backwards, the first occurrence found is the last one loaded
+        for (int i = sales.size() - 1; i >= 0; i--) {
+            Sale sale = sales.get(i);
+            if (seen.add(sale.getTransactionId())) {
+                kept.add(sale);
+            } else {
+                duplicates++;
+            }
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return Rows dropped so far
+     */
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+
+    /**
+     * @return Distinct transaction ids seen so far
+     */
+    public long getUniqueCount() {
+        return seen.size();
+    }
+
+    public long getMemoryBytes() {
+        return seen.memoryBytes();
+    }
+}
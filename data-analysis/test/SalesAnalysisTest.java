@@ -1,11 +1,39 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class SalesAnalysisTest {
 
@@ -240,7 +268,741 @@ public class SalesAnalysisTest {
         TestRunner.assertEquals(new BigDecimal("0.00"), growth.get("2023-03"));
     }
 
+    // --- Sketch Aggregates ---
+
+    public void testSketch_HyperLogLogAccuracyAndMerge() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        for (int i = 0; i < 60000; i++) {
+            left.add("product-" + i);
+        }
+        for (int i = 40000; i < 100000; i++) {
+            right.add("product-" + i);
+        }
+
+        long estimate = left.merge(right).estimate();
+        TestRunner.assertTrue(Math.abs(estimate - 100000) < 5000,
+                "HLL estimate should be within 5% of 100000 but was " + estimate);
+    }
+
+    public void testSketch_TDigestQuantilesAndMerge() {
+        TDigest left = new TDigest();
+        TDigest right = new TDigest();
+        for (int i = 1; i <= 10000; i++) {
+            (i % 2 == 0 ? left : right).add(i);
+        }
+
+        TDigest merged = left.merge(right);
+        TestRunner.assertEquals(10000L, merged.size());
+        TestRunner.assertTrue(Math.abs(merged.quantile(0.5) - 5000) < 100, "Median should be ~5000");
+        TestRunner.assertTrue(Math.abs(merged.quantile(0.95) - 9500) < 50, "P95 should be ~9500");
+        TestRunner.assertTrue(merged.centroidCount() <= 2 * TDigest.DEFAULT_COMPRESSION,
+                "Centroid count should be bounded by compression");
+    }
+
+    public void testSketch_TDigestCompressDoesNotAllocatePerFlush() {
+        TDigest digest = new TDigest();
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            digest.add(random.nextGaussian());
+        }
+
+        // 5000 adds flush the 500-value buffer ten times
+        TestRunner.PerfResult result = TestRunner.measure(() -> {
+            for (int i = 0; i < 5000; i++) {
+                digest.add(random.nextGaussian());
+            }
+            return digest;
+        }, 5, 5);
+
+        TestRunner.assertTrue(result.bytesPerOp < 1024, "Flushes should reuse buffers, allocated "
+                + result.bytesPerOp + " bytes");
+        TestRunner.assertTrue(Math.abs(digest.quantile(0.5)) < 0.05, "Median of N(0,1) should be ~0");
+    }
+
+    public void testSketch_AnalyzerDistinctAndQuantiles() {
+        List<Sale> sales = List.of(
+                new Sale(1, LocalDate.now(), "Laptop", "Electronics", "North", 1, new BigDecimal("100.00")),
+                new Sale(2, LocalDate.now(), "Laptop", "Electronics", "North", 1, new BigDecimal("200.00")),
+                new Sale(3, LocalDate.now(), "Monitor", "Electronics", "North", 1, new BigDecimal("300.00")),
+                new Sale(4, LocalDate.now(), "T-Shirt", "Clothing", "South", 1, new BigDecimal("20.00")));
+
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        Map<String, Long> distinct = analyzer.getDistinctProductsByRegion();
+        Map<String, BigDecimal> median = analyzer.getRevenueQuantileByCategory(0.5);
+
+        TestRunner.assertEquals(2L, distinct.get("North"));
+        TestRunner.assertEquals(1L, distinct.get("South"));
+        TestRunner.assertEquals(new BigDecimal("200.00"), median.get("Electronics"));
+        TestRunner.assertEquals(new BigDecimal("20.00"), median.get("Clothing"));
+    }
+
+    // --- Off-Heap Storage ---
+
+    public void testOffHeap_AnalyzerMatchesOnHeap() throws IOException {
+        createCsv("test_offheap.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price",
+                "1,2023-01-15,Laptop,Electronics,North,2,1200.00",
+                "2,2023-01-20,T-Shirt,Clothing,South,3,20.00",
+                "3,2023-02-10,Monitor,Electronics,East,1,300.00",
+                "4,2023-02-11,Jeans,Clothing,North,-1,50.5");
+
+        try (OffHeapSalesStore store = new OffHeapSalesStore(2)) {
+            int loaded = CsvLoader.loadSalesData("test_offheap.csv", store::append);
+            List<Sale> onHeap = CsvLoader.loadSalesData("test_offheap.csv");
+
+            TestRunner.assertEquals(4, loaded);
+            TestRunner.assertEquals(onHeap, store.asList());
+            TestRunner.assertEquals(new SalesAnalyzer(onHeap).getTotalSalesByCategory(),
+                    new SalesAnalyzer(store.asList()).getTotalSalesByCategory());
+            TestRunner.assertEquals(2L * 2 * OffHeapSalesStore.ROW_BYTES, store.offHeapBytes());
+        }
+
+        new File("test_offheap.csv").delete();
+    }
+
+    public void testOffHeap_ClosedStoreRejectsAccess() {
+        OffHeapSalesStore store = new OffHeapSalesStore(16);
+        store.append(new Sale(1, LocalDate.of(2023, 1, 1), "A", "C", "R", 1, new BigDecimal("1.00")));
+        List<Sale> view = store.asList();
+        store.close();
+        store.close();
+
+        TestRunner.assertTrue(store.isClosed(), "Store should report closed");
+        try {
+            view.get(0);
+            throw new RuntimeException("Expected IllegalStateException after close");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    public void testOffHeap_ReadRacingCloseFailsCleanly() throws InterruptedException {
+        OffHeapSalesStore store = new OffHeapSalesStore(64);
+        for (int i = 0; i < 1000; i++) {
+            store.append(new Sale(i, LocalDate.of(2023, 1, 1), "A", "C", "R", 1, new BigDecimal("1.00")));
+        }
+        List<Sale> view = store.asList();
+        CountDownLatch reading = new CountDownLatch(1);
+        Throwable[] outcome = new Throwable[1];
+        Thread reader = new Thread(() -> {
+            try {
+                for (int i = 0;; i = (i + 1) % view.size()) {
+                    view.get(i);
+                    reading.countDown();
+                }
+            } catch (Throwable e) {
+                outcome[0] = e;
+            }
+        });
+        reader.start();
+        reading.await();
+        store.close();
+        reader.join(10_000);
+
+        TestRunner.assertTrue(outcome[0] instanceof IllegalStateException,
+                "Reader should stop with IllegalStateException, got " + outcome[0]);
+    }
+
+    // --- Column Compression ---
+
+    public void testCompression_EncodedColumnRoundTrip() {
+        long[] wide = new long[1000];
+        long[] sorted = new long[1000];
+        for (int i = 0; i < wide.length; i++) {
+            wide[i] = (i * 7919L) % 100003 - 50000;
+            sorted[i] = 19358 + i / 100;
+        }
+        EncodedColumn packed = EncodedColumn.encode(wide);
+        EncodedColumn runs = EncodedColumn.encode(sorted);
+
+        for (int i = 0; i < wide.length; i++) {
+            TestRunner.assertEquals(wide[i], packed.get(i));
+            TestRunner.assertEquals(sorted[i], runs.get(i));
+        }
+        TestRunner.assertEquals("bit-packed(17)", packed.encoding());
+        TestRunner.assertEquals("rle(10 runs)", runs.encoding());
+    }
+
+    public void testCompression_ForEachRunCoversEveryRow() {
+        long[] values = { 5, 5, 5, 9, 9, 5, 7, 7, 7, 7 };
+        long[] sorted = new long[1000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = 19358 + i / 100;
+        }
+        for (EncodedColumn column : List.of(EncodedColumn.encode(values), EncodedColumn.encode(sorted))) {
+            List<String> runs = new ArrayList<>();
+            int[] covered = { 0 };
+            column.forEachRun((start, end, value) -> {
+                TestRunner.assertEquals(covered[0], start);
+                for (int i = start; i < end; i++) {
+                    TestRunner.assertEquals(column.get(i), value);
+                }
+                covered[0] = end;
+                runs.add(start + "-" + end);
+            });
+            TestRunner.assertEquals(column.size(), covered[0]);
+            if (column.size() == values.length) {
+                TestRunner.assertEquals(List.of("0-3", "3-5", "5-6", "6-10"), runs);
+            } else {
+                TestRunner.assertEquals(10, runs.size());
+            }
+        }
+
+        // Date-ordered extract: the month kernel aggregates over RLE date runs
+        List<Sale> sales = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            sales.add(new Sale(i, LocalDate.of(2023, 1, 1).plusDays(i / 3), "Laptop", "Electronics", "North",
+                    1 + i % 3, new BigDecimal("10.50")));
+        }
+        TestRunner.assertEquals(new SalesAnalyzer(sales).getSalesTrendByMonth(),
+                CompressedSalesTable.encode(sales).getSalesTrendByMonth());
+    }
+
+    public void testCompression_KernelsMatchAnalyzer() throws IOException {
+        DataGenerator.generateSalesData("test_compressed.csv", 2000);
+        List<Sale> sales = CsvLoader.loadSalesData("test_compressed.csv");
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        CompressedSalesTable table = CompressedSalesTable.encode(sales);
+
+        TestRunner.assertEquals(analyzer.getTotalSalesByCategory(), table.getTotalSalesByCategory());
+        TestRunner.assertEquals(analyzer.getSalesTrendByMonth(), table.getSalesTrendByMonth());
+        TestRunner.assertEquals(analyzer.getTopSellingProducts(1).get(0).getValue().longValue(),
+                table.getTotalQuantityByProduct().get(analyzer.getTopSellingProducts(1).get(0).getKey()));
+
+        Map<String, Double> ratios = table.getCompressionRatios();
+        TestRunner.assertTrue(ratios.get("region") > 10, "2-bit region codes should compress >10x");
+        TestRunner.assertTrue(ratios.get("quantity") > 8, "3-bit quantities should compress >8x");
+
+        new File("test_compressed.csv").delete();
+    }
+
+    // --- Sharded Analysis ---
+
+    public void testShard_PartialAggregateRoundTripMatchesAnalyzer() throws IOException {
+        List<Sale> sales = List.of(
+                new Sale(1, LocalDate.of(2023, 1, 15), "Laptop", "Electronics", "North", 2, new BigDecimal("1200.00")),
+                new Sale(2, LocalDate.of(2023, 1, 20), "T-Shirt", "Clothing", "South", 3, new BigDecimal("20.00")),
+                new Sale(3, LocalDate.of(2023, 2, 10), "Monitor", "Electronics", "North", 1, new BigDecimal("300.00")));
+        PartialAggregate left = new PartialAggregate();
+        PartialAggregate right = new PartialAggregate();
+        left.accumulate(sales.get(0));
+        right.accumulate(sales.get(1));
+        right.accumulate(sales.get(2));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        right.writeTo(new DataOutputStream(bytes));
+        PartialAggregate merged = left.merge(
+                PartialAggregate.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        TestRunner.assertEquals(analyzer.getTotalSalesByCategory(), merged.getTotalSalesByCategory());
+        TestRunner.assertEquals(analyzer.getAverageSalesByRegion(), merged.getAverageSalesByRegion());
+        TestRunner.assertEquals(analyzer.getSalesTrendByMonth(), merged.getSalesTrendByMonth());
+        TestRunner.assertEquals(analyzer.getMonthOverMonthGrowth(), merged.getMonthOverMonthGrowth());
+        TestRunner.assertEquals(analyzer.getTopSellingProducts(1), merged.getTopSellingProducts(1));
+        TestRunner.assertEquals(3L, merged.getCount());
+    }
+
+    public void testShard_CoordinatorRetriesFailedWorker() throws IOException {
+        createCsv("test_shard1.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price",
+                "1,2023-01-15,Laptop,Electronics,North,2,1200.00");
+        createCsv("test_shard2.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price",
+                "2,2023-01-20,T-Shirt,Clothing,South,3,20.00");
+        createCsv("test_shard3.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price",
+                "3,2023-02-10,Monitor,Electronics,East,1,300.00");
+        List<String> files = List.of("test_shard1.csv", "test_shard2.csv", "test_shard3.csv");
+
+        // First attempt of every shard launches a class that does not exist, so the JVM exits non-zero
+        ShardCoordinator coordinator = new ShardCoordinator(2, 2, 60, (shard, attempt) -> attempt == 1
+                ? failingWorker()
+                : ShardCoordinator.workerProcess(shard, attempt));
+        PartialAggregate result = coordinator.run(files);
+
+        List<Sale> all = new ArrayList<>();
+        files.forEach(f -> all.addAll(CsvLoader.loadSalesData(f)));
+        TestRunner.assertEquals(3L, result.getCount());
+        TestRunner.assertEquals(new SalesAnalyzer(all).getTotalSalesByCategory(), result.getTotalSalesByCategory());
+
+        files.forEach(f -> new File(f).delete());
+    }
+
+    public void testShard_CoordinatorFailsAfterMaxAttempts() {
+        ShardCoordinator coordinator = new ShardCoordinator(1, 2, 60, (shard, attempt) -> failingWorker());
+        try {
+            coordinator.run(List.of("unused.csv"));
+            throw new RuntimeException("Expected IllegalStateException when every attempt fails");
+        } catch (IllegalStateException expected) {
+            TestRunner.assertTrue(expected.getMessage().contains("failed after 2 attempts"),
+                    "Message should report attempts: " + expected.getMessage());
+        }
+    }
+
+    public void testShard_LargePartialIsDrainedWhileCommonPoolIsBusy() throws Exception {
+        // 10,000 distinct products make the partial far larger than a pipe buffer
+        try (PrintWriter pw = new PrintWriter(new FileWriter("test_shard_large.csv"))) {
+            pw.println("transaction_id,date,product_name,category,region,quantity,unit_price");
+            for (int i = 0; i < 10_000; i++) {
+                pw.println(i + ",2023-01-15,Product-" + i + ",Electronics,North,1,10.00");
+            }
+        }
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < parallelism; i++) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            ShardCoordinator coordinator = new ShardCoordinator(1, 1, 30, ShardCoordinator::workerProcess);
+            PartialAggregate result = coordinator.run(List.of("test_shard_large.csv"));
+
+            TestRunner.assertEquals(10_000L, result.getCount());
+        } finally {
+            release.countDown();
+            new File("test_shard_large.csv").delete();
+        }
+    }
+
+    public void testShard_UnreadableShardIsRetriedThenFails() {
+        ShardCoordinator coordinator = new ShardCoordinator(1, 2, 60, ShardCoordinator::workerProcess);
+        try {
+            coordinator.run(List.of("missing_shard.csv"));
+            throw new RuntimeException("Expected IllegalStateException for an unreadable shard");
+        } catch (IllegalStateException expected) {
+            TestRunner.assertTrue(expected.getMessage().contains("failed after 2 attempts"),
+                    "Unreadable shard should fail the run: " + expected.getMessage());
+        }
+    }
+
+    public void testShard_CorruptSketchIsReportedAsIOException() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        new PartialAggregate().writeTo(out);
+        byte[] empty = bytes.toByteArray();
+        // Replace the trailing empty sketch maps with one HyperLogLog of invalid precision
+        bytes.reset();
+        out.write(empty, 0, empty.length - 8);
+        out.writeInt(1);
+        out.writeUTF("North");
+        out.writeByte(99);
+
+        try {
+            PartialAggregate.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            throw new RuntimeException("Expected IOException for a corrupt partial");
+        } catch (IOException expected) {
+            TestRunner.assertTrue(expected.getMessage().startsWith("Corrupt partial aggregate"),
+                    expected.getMessage());
+        }
+    }
+
+    // --- Pipelined Load ---
+
+    public void testPipeline_RingBufferConcurrentTransfer() throws InterruptedException {
+        RingBuffer<Integer> ring = new RingBuffer<>(8);
+        int perProducer = 20000;
+        AtomicLong consumedSum = new AtomicLong();
+        AtomicInteger consumed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < 2; p++) {
+            threads.add(new Thread(() -> {
+                for (int i = 1; i <= perProducer; i++) {
+                    while (!ring.offer(i)) {
+                        // Yield rather than spin so the test also finishes quickly on one CPU
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                while (consumed.get() < 2 * perProducer) {
+                    Integer item = ring.poll();
+                    if (item != null) {
+                        consumedSum.addAndGet(item);
+                        consumed.incrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        TestRunner.assertEquals(2L * perProducer * (perProducer + 1) / 2, consumedSum.get());
+        TestRunner.assertTrue(ring.poll() == null, "Ring should be drained");
+    }
+
+    public void testPipeline_MatchesAnalyzerAndReportsUtilization() {
+        DataGenerator.generateSalesData("test_pipeline.csv", 5000);
+        SalesPipeline pipeline = new SalesPipeline(3, 2, 64, 4);
+        PartialAggregate result = pipeline.run("test_pipeline.csv");
+        SalesAnalyzer analyzer = new SalesAnalyzer(CsvLoader.loadSalesData("test_pipeline.csv"));
+
+        TestRunner.assertEquals(5000L, result.getCount());
+        TestRunner.assertEquals(analyzer.getTotalSalesByCategory(), result.getTotalSalesByCategory());
+        TestRunner.assertEquals(analyzer.getSalesTrendByMonth(), result.getSalesTrendByMonth());
+
+        Map<String, Double> utilization = pipeline.getStageUtilization();
+        TestRunner.assertEquals(List.of("reader", "parser", "aggregator"), new ArrayList<>(utilization.keySet()));
+        utilization.values().forEach(u -> TestRunner.assertTrue(u >= 0.0 && u <= 1.0, "Utilization out of range: " + u));
+
+        new File("test_pipeline.csv").delete();
+    }
+
+    public void testPipeline_HeaderOnlyFileReportsNoUtilization() throws IOException {
+        createCsv("test_pipeline_empty.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price");
+        SalesPipeline pipeline = new SalesPipeline(2, 1, 64, 4);
+
+        PartialAggregate result = pipeline.run("test_pipeline_empty.csv");
+
+        TestRunner.assertEquals(0L, result.getCount());
+        TestRunner.assertTrue(pipeline.getStageUtilization().isEmpty(),
+                "No batches flowed, so no stage should be reported: " + pipeline.getStageUtilization());
+        TestRunner.assertEquals("", pipeline.getUtilizationReport());
+
+        new File("test_pipeline_empty.csv").delete();
+    }
+
+    // --- Dimension Joins ---
+
+    public void testJoin_GrossMarginAndPerCapita() throws IOException {
+        createCsv("test_costs.csv",
+                "unit_cost,product_name",
+                "700.00,Laptop",
+                "12.50,T-Shirt");
+        createCsv("test_population.csv",
+                "region,population",
+                "North,1000",
+                "South,200");
+        List<Sale> sales = List.of(
+                new Sale(1, LocalDate.now(), "Laptop", "Electronics", "North", 2, new BigDecimal("1200.00")),
+                new Sale(2, LocalDate.now(), "T-Shirt", "Clothing", "South", 4, new BigDecimal("20.00")),
+                new Sale(3, LocalDate.now(), "Unknown", "Clothing", "East", 1, new BigDecimal("99.00")));
+
+        DimensionTable costs = DimensionTable.load("test_costs.csv", "product_name", "unit_cost");
+        DimensionTable population = DimensionTable.load("test_population.csv", "region", "population");
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        Map<String, BigDecimal> margin = analyzer.getGrossMarginByCategory(costs);
+        Map<String, BigDecimal> perCapita = analyzer.getRevenuePerCapitaByRegion(population);
+
+        TestRunner.assertEquals(new BigDecimal("1000.00"), margin.get("Electronics"));
+        TestRunner.assertEquals(new BigDecimal("30.00"), margin.get("Clothing"));
+        TestRunner.assertEquals(new BigDecimal("2.4000"), perCapita.get("North"));
+        TestRunner.assertEquals(new BigDecimal("0.4000"), perCapita.get("South"));
+        TestRunner.assertTrue(!perCapita.containsKey("East"), "Regions without population should be excluded");
+
+        new File("test_costs.csv").delete();
+        new File("test_population.csv").delete();
+    }
+
+    public void testJoin_PerCapitaLogsRegionsWithoutPopulation() {
+        DimensionTable population = new DimensionTable();
+        population.put("North", new BigDecimal("1000"));
+        population.put("West", BigDecimal.ZERO);
+        List<Sale> sales = List.of(
+                new Sale(1, LocalDate.now(), "Laptop", "Electronics", "North", 2, new BigDecimal("1200.00")),
+                new Sale(2, LocalDate.now(), "T-Shirt", "Clothing", "East", 4, new BigDecimal("20.00")),
+                new Sale(3, LocalDate.now(), "Jeans", "Clothing", "West", 1, new BigDecimal("50.00")));
+        List<String> warnings = new ArrayList<>();
+        Handler capture = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING) {
+                    warnings.add(record.getMessage());
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(SalesAnalyzer.class.getName());
+        logger.addHandler(capture);
+        try {
+            Map<String, BigDecimal> perCapita = new SalesAnalyzer(sales).getRevenuePerCapitaByRegion(population);
+
+            TestRunner.assertEquals(Set.of("North"), perCapita.keySet());
+            TestRunner.assertEquals(List.of("Per-capita report excluded 2 region(s) with no population: [East, West]"),
+                    warnings);
+        } finally {
+            logger.removeHandler(capture);
+        }
+    }
+
+    public void testJoin_CompressedKernelMatchesAnalyzer() {
+        DataGenerator.generateSalesData("test_join.csv", 2000);
+        DataGenerator.generateProductCosts("test_join_costs.csv");
+        List<Sale> sales = CsvLoader.loadSalesData("test_join.csv");
+        DimensionTable costs = DimensionTable.load("test_join_costs.csv", "product_name", "unit_cost");
+
+        TestRunner.assertEquals(new SalesAnalyzer(sales).getGrossMarginByCategory(costs),
+                CompressedSalesTable.encode(sales).getGrossMarginByCategory(costs));
+
+        new File("test_join.csv").delete();
+        new File("test_join_costs.csv").delete();
+    }
+
+    // --- Primitive Group-By ---
+
+    public void testGroupBy_MatchesBigDecimalGrouping() {
+        DataGenerator.generateSalesData("test_groupby.csv", 2000);
+        List<Sale> sales = new ArrayList<>(CsvLoader.loadSalesData("test_groupby.csv"));
+        // Mixed scales: group sums must take the widest scale, as BigDecimal::add does
+        sales.add(new Sale(9001, LocalDate.of(2023, 1, 5), "Pen", "Office", "North", 3, new BigDecimal("0.125")));
+        sales.add(new Sale(9002, LocalDate.of(2023, 1, 6), "Pad", "Office", "North", 2, new BigDecimal("4.5")));
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
+
+        TestRunner.assertEquals(analyzer.analyzeBy(Sale::getCategory, Sale::getTotalRevenue),
+                analyzer.getTotalSalesByCategory());
+        TestRunner.assertEquals(analyzer.analyzeBy(s -> s.getDate().format(monthFormatter), Sale::getTotalRevenue),
+                analyzer.getSalesTrendByMonth());
+        TestRunner.assertEquals(new BigDecimal("9.375"), analyzer.getTotalSalesByCategory().get("Office"));
+
+        new File("test_groupby.csv").delete();
+    }
+
+    public void testGroupBy_CompositeCategoryRegionMonth() {
+        List<Sale> sales = List.of(
+                new Sale(1, LocalDate.of(2023, 1, 10), "Laptop", "Electronics", "North", 1, new BigDecimal("1000.00")),
+                new Sale(2, LocalDate.of(2023, 1, 20), "Mouse", "Electronics", "North", 2, new BigDecimal("25.00")),
+                new Sale(3, LocalDate.of(2023, 2, 1), "Laptop", "Electronics", "North", 1, new BigDecimal("1000.00")),
+                new Sale(4, LocalDate.of(2023, 1, 15), "Laptop", "Electronics", "South", 1, new BigDecimal("900.00")),
+                new Sale(5, LocalDate.of(2022, 12, 31), "Jeans", "Clothing", "North", 3, new BigDecimal("40.00")));
+
+        Map<String, Map<String, Map<String, BigDecimal>>> cube = new SalesAnalyzer(sales)
+                .getRevenueByCategoryRegionMonth();
+
+        TestRunner.assertEquals(new BigDecimal("1050.00"), cube.get("Electronics").get("North").get("2023-01"));
+        TestRunner.assertEquals(new BigDecimal("1000.00"), cube.get("Electronics").get("North").get("2023-02"));
+        TestRunner.assertEquals(new BigDecimal("900.00"), cube.get("Electronics").get("South").get("2023-01"));
+        TestRunner.assertEquals(new BigDecimal("120.00"), cube.get("Clothing").get("North").get("2022-12"));
+        TestRunner.assertEquals(1, cube.get("Clothing").size());
+    }
+
+    public void testGroupBy_OverflowFallsBackToBigDecimal() {
+        BigDecimal hugePrice = new BigDecimal("90000000000000.00");
+        List<Sale> sales = List.of(
+                new Sale(1, LocalDate.of(2023, 1, 1), "Jet", "Aviation", "North", 1000, hugePrice),
+                new Sale(2, LocalDate.of(2023, 1, 2), "Jet", "Aviation", "North", 1000, hugePrice));
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+
+        BigDecimal expected = new BigDecimal("180000000000000000.00");
+        TestRunner.assertEquals(expected, analyzer.getTotalSalesByCategory().get("Aviation"));
+        TestRunner.assertEquals(expected, analyzer.getRevenueByCategoryRegionMonth()
+                .get("Aviation").get("North").get("2023-01"));
+        TestRunner.assertEquals(new BigDecimal("90000000000000000.00"),
+                analyzer.getAverageSalesByRegion().get("North"));
+    }
+
+    // --- Transaction Dedup ---
+
+    public void testDedup_TransactionIdSetMatchesHashSet() {
+        TransactionIdSet ids = new TransactionIdSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        // A dense run (forces the bitmap form), sparse random ids and negatives
+        for (int i = 0; i < 10_000; i++) {
+            TestRunner.assertEquals(expected.add(i), ids.add(i));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt();
+            TestRunner.assertEquals(expected.add(id), ids.add(id));
+        }
+        TestRunner.assertEquals(false, ids.add(5000));
+        TestRunner.assertEquals((long) expected.size(), ids.size());
+        for (int id : expected) {
+            TestRunner.assertTrue(ids.contains(id), "Missing id " + id);
+        }
+        TestRunner.assertTrue(!ids.contains(10_000), "Id was never added");
+    }
+
+    public void testDedup_OverlappingFilesFirstAndLastWins() throws IOException {
+        createCsv("test_extract1.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price",
+                "1,2023-01-01,Laptop,Electronics,North,1,1000.00",
+                "2,2023-01-02,Mouse,Electronics,North,2,25.00");
+        createCsv("test_extract2.csv",
+                "transaction_id,date,product_name,category,region,quantity,unit_price",
+                "2,2023-01-02,Mouse,Electronics,North,3,25.00",
+                "3,2023-01-03,Jeans,Clothing,South,1,40.00");
+        List<String> files = List.of("test_extract1.csv", "test_extract2.csv");
+
+        TransactionDeduplicator first = new TransactionDeduplicator(TransactionDeduplicator.Policy.FIRST_WINS);
+        List<Sale> firstWins = CsvLoader.loadSalesData(files, first);
+        TransactionDeduplicator last = new TransactionDeduplicator(TransactionDeduplicator.Policy.LAST_WINS);
+        List<Sale> lastWins = CsvLoader.loadSalesData(files, last);
+
+        TestRunner.assertEquals(3, firstWins.size());
+        TestRunner.assertEquals(1L, first.getDuplicateCount());
+        TestRunner.assertEquals(new BigDecimal("1050.00"),
+                new SalesAnalyzer(firstWins).getTotalSalesByCategory().get("Electronics"));
+        TestRunner.assertEquals(3, lastWins.size());
+        TestRunner.assertEquals(1L, last.getDuplicateCount());
+        TestRunner.assertEquals(new BigDecimal("1075.00"),
+                new SalesAnalyzer(lastWins).getTotalSalesByCategory().get("Electronics"));
+        TestRunner.assertEquals(List.of(1, 2, 3), lastWins.stream().map(Sale::getTransactionId).toList());
+
+        new File("test_extract1.csv").delete();
+        new File("test_extract2.csv").delete();
+    }
+
+    public void testDedup_LastWinsCannotStream() {
+        TransactionDeduplicator last = new TransactionDeduplicator(TransactionDeduplicator.Policy.LAST_WINS);
+        try {
+            last.filter(sale -> {
+            });
+            throw new RuntimeException("Expected IllegalStateException for streaming LAST_WINS");
+        } catch (IllegalStateException expected) {
+            TestRunner.assertTrue(expected.getMessage().contains("FIRST_WINS"),
+                    "Message should name the required policy: " + expected.getMessage());
+        }
+    }
+
+    // --- Compressed Input ---
+
+    public void testCompressed_GzipZipDeflateMatchPlain() throws IOException {
+        DataGenerator.generateSalesData("test_codec.csv", 3000);
+        byte[] plain = Files.readAllBytes(Paths.get("test_codec.csv"));
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream("test_codec.csv.gz"))) {
+            out.write(plain);
+        }
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream("test_codec.zip"))) {
+            out.putNextEntry(new ZipEntry("sales/"));
+            out.putNextEntry(new ZipEntry("sales/test_codec.csv"));
+            out.write(plain);
+        }
+        try (OutputStream out = new DeflaterOutputStream(new FileOutputStream("test_codec.csv.deflate"))) {
+            out.write(plain);
+        }
+
+        List<Sale> expected = CsvLoader.loadSalesData("test_codec.csv");
+        TestRunner.assertEquals(3000, expected.size());
+        TestRunner.assertEquals(expected, CsvLoader.loadSalesData("test_codec.csv.gz"));
+        TestRunner.assertEquals(expected, CsvLoader.loadSalesData("test_codec.zip"));
+        TestRunner.assertEquals(expected, CsvLoader.loadSalesData("test_codec.csv.deflate"));
+        TestRunner.assertEquals(3000L, new SalesPipeline(2, 1).run("test_codec.csv.gz").getCount());
+
+        for (String file : List.of("test_codec.csv", "test_codec.csv.gz", "test_codec.zip", "test_codec.csv.deflate")) {
+            new File(file).delete();
+        }
+    }
+
+    public void testCompressed_TruncatedGzipKeepsRowsReadSoFar() throws IOException {
+        DataGenerator.generateSalesData("test_truncated.csv", 20000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(Files.readAllBytes(Paths.get("test_truncated.csv")));
+        }
+        byte[] bytes = compressed.toByteArray();
+        Files.write(Paths.get("test_truncated.csv.gz"), Arrays.copyOf(bytes, bytes.length / 2));
+
+        // The codec error surfaces as a read error: logged, rows before it are kept
+        List<Sale> sales = CsvLoader.loadSalesData("test_truncated.csv.gz");
+        TestRunner.assertTrue(sales.size() > 0 && sales.size() < 20000,
+                "Expected a partial load, got " + sales.size() + " rows");
+
+        new File("test_truncated.csv").delete();
+        new File("test_truncated.csv.gz").delete();
+    }
+
+    public void testCompressed_UncheckedCodecFailureReachesReader() throws IOException {
+        InputStream failingCodec = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("inflater boom");
+            }
+        };
+
+        try (DecompressingInputStream in = new DecompressingInputStream(failingCodec, "test")) {
+            in.read();
+            throw new RuntimeException("Expected IOException from a failing codec");
+        } catch (IOException expected) {
+            TestRunner.assertTrue(expected.getMessage().contains("inflater boom"),
+                    "Codec failure should be reported: " + expected.getMessage());
+        }
+    }
+
+    public void testCompressed_MultiFileZipIsRejected() throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream("test_multi.zip"))) {
+            out.putNextEntry(new ZipEntry("mon.csv"));
+            out.write("transaction_id,date,product_name,category,region,quantity,unit_price\n".getBytes());
+            out.putNextEntry(new ZipEntry("tue.csv"));
+            out.write("transaction_id,date,product_name,category,region,quantity,unit_price\n".getBytes());
+        }
+
+        try {
+            CsvLoader.openReader("test_multi.zip").close();
+            throw new RuntimeException("Expected IOException for a zip with two files");
+        } catch (IOException expected) {
+            TestRunner.assertTrue(expected.getMessage().contains("2 file entries"),
+                    "Message should count the entries: " + expected.getMessage());
+        } finally {
+            new File("test_multi.zip").delete();
+        }
+    }
+
+    // --- Perf Harness ---
+
+    public void testPerfHarness_MeasuresAllocationPerOp() {
+        TestRunner.PerfResult result = TestRunner.measure(() -> new byte[1 << 20], 5, 5);
+
+        TestRunner.assertTrue(result.bytesPerOp >= (1 << 20) && result.bytesPerOp < (1 << 20) + 4096,
+                "Expected ~1 MB per op, got " + result.bytesPerOp);
+        TestRunner.assertTrue(result.millisPerOp >= 0, "Wall time should be recorded");
+    }
+
+    public void testPerfHarness_EnablesAllocationTrackingWhenOff() {
+        com.sun.management.ThreadMXBean threads = TestRunner.allocationTracker();
+        threads.setThreadAllocatedMemoryEnabled(false);
+        try {
+            TestRunner.PerfResult result = TestRunner.measure(() -> new byte[1 << 20], 5, 5);
+
+            TestRunner.assertTrue(threads.isThreadAllocatedMemoryEnabled(), "Tracking should be switched back on");
+            TestRunner.assertTrue(result.bytesPerOp >= (1 << 20), "Expected ~1 MB per op, got " + result.bytesPerOp);
+        } finally {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    public void testPerfHarness_FlagsOverBudgetAndMissingEntries() {
+        Properties budgets = new Properties();
+        budgets.setProperty("perfLoad.bytesPerOp", "500");
+        budgets.setProperty("perfLoad.millisPerOp", "10");
+
+        List<String> overBudget = TestRunner.checkBudget("perfLoad", new TestRunner.PerfResult(1000, 5.0), budgets);
+        List<String> withinBudget = TestRunner.checkBudget("perfLoad", new TestRunner.PerfResult(400, 5.0), budgets);
+        List<String> missing = TestRunner.checkBudget("perfOther", new TestRunner.PerfResult(400, 5.0), budgets);
+
+        TestRunner.assertEquals(1, overBudget.size());
+        TestRunner.assertTrue(overBudget.get(0).startsWith("Allocation over budget"), overBudget.get(0));
+        TestRunner.assertTrue(withinBudget.isEmpty(), "Within budget should pass: " + withinBudget);
+        TestRunner.assertTrue(missing.get(0).startsWith("No budget"), "Missing budget should fail");
+        TestRunner.assertEquals("perfOther.bytesPerOp=400", missing.get(1));
+    }
+
     // Helper
+    private ProcessBuilder failingWorker() {
+        return new ProcessBuilder(System.getProperty("java.home") + "/bin/java", "-cp",
+                System.getProperty("java.class.path"), "NoSuchShardWorker");
+    }
+
     private void createCsv(String filename, String... lines) throws IOException {
         try (PrintWriter pw = new PrintWriter(new FileWriter(filename))) {
             for (String line : lines) {
@@ -0,0 +1,61 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Allocation and latency budgets for the hot paths.
+ * Each perf method sets up its input and returns the operation to measure;
+ * budgets live in test/perf-budgets.properties.
+ */
+public class SalesPerfTest {
+    private static final int ROWS = 20_000;
+
+    private final String csvPath;
+    private final List<Sale> sales;
+
+    public static void main(String[] args) {
+        TestRunner.runPerfTests(SalesPerfTest.class, args.length > 0 ? args[0] : "test/perf-budgets.properties");
+    }
+
+    public SalesPerfTest() throws IOException {
+        File csv = File.createTempFile("perf_sales", ".csv");
+        csv.deleteOnExit();
+        csvPath = csv.getPath();
+        DataGenerator.generateSalesData(csvPath, ROWS);
+        sales = CsvLoader.loadSalesData(csvPath);
+    }
+
+    // --- CsvLoader ---
+
+    public Supplier<?> perfCsvLoader_StreamingLoad() {
+        return () -> {
+            AtomicLong rows = new AtomicLong();
+            CsvLoader.loadSalesData(csvPath, sale -> rows.incrementAndGet());
+            return rows;
+        };
+    }
+
+    // --- SalesAnalyzer ---
+
+    public Supplier<?> perfSalesAnalyzer_TotalSalesByCategory() {
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        return analyzer::getTotalSalesByCategory;
+    }
+
+    public Supplier<?> perfSalesAnalyzer_SalesTrendByMonth() {
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        return analyzer::getSalesTrendByMonth;
+    }
+
+    public Supplier<?> perfSalesAnalyzer_RevenueByCategoryRegionMonth() {
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        return analyzer::getRevenueByCategoryRegionMonth;
+    }
+
+    public Supplier<?> perfSalesAnalyzer_TopSellingProducts() {
+        SalesAnalyzer analyzer = new SalesAnalyzer(sales);
+        return () -> analyzer.getTopSellingProducts(5);
+    }
+}
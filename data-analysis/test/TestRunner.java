@@ -1,13 +1,27 @@
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
 
 /**
  * A simple, dependency-free Test Runner.
  * Executes methods starting with "test" in the provided class.
+ * In perf mode (runPerfTests) it instead runs methods starting with "perf"
+ * and checks allocation and wall time per operation against a budget file.
  */
 public class TestRunner {
+    static final int WARMUP_ITERATIONS = 50;
+    static final int MEASURED_ITERATIONS = 30;
+
+    // Keeps perf results reachable so the JIT cannot drop the measured work
+    private static volatile Object blackhole;
 
     public static void runTests(Class<?> testClass) {
         System.out.println("Running tests for: " + testClass.getSimpleName());
@@ -48,6 +62,163 @@ public class TestRunner {
         }
     }
 
+    // --- Perf Mode ---
+
+    /**
+     * Runs every "perf" method of the class. A perf method does its setup and
+     * returns the operation to measure; the operation is warmed up, then run
+     * MEASURED_ITERATIONS times while recording bytes allocated by this thread
+     * (ThreadMXBean) and wall time. Medians are compared with the budget file,
+     * a properties file with "<method>.bytesPerOp" and "<method>.millisPerOp"
+     * entries. Exits with an error if a budget is exceeded or missing, or if
+     * the JVM cannot count allocated bytes.
+     */
+    public static void runPerfTests(Class<?> testClass, String budgetFile) {
+        System.out.println("Running perf tests for: " + testClass.getSimpleName() + " (budgets: " + budgetFile + ")");
+        System.out.println("--------------------------------------------------");
+
+        int passed = 0;
+        List<String> failedTests = new ArrayList<>();
+        try {
+            Properties budgets = loadBudgets(budgetFile);
+            allocationTracker();
+            Object instance = testClass.getDeclaredConstructor().newInstance();
+            for (Method method : testClass.getDeclaredMethods()) {
+                if (!method.getName().startsWith("perf")) {
+                    continue;
+                }
+                System.out.print("Running " + method.getName() + "... ");
+                try {
+                    Supplier<?> operation = (Supplier<?>) method.invoke(instance);
+                    PerfResult result = measure(operation, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+                    List<String> violations = checkBudget(method.getName(), result, budgets);
+                    if (violations.isEmpty()) {
+                        System.out.println("PASSED " + result);
+                        passed++;
+                    } else {
+                        System.out.println("FAILED " + result);
+                        violations.forEach(violation -> System.out.println("  " + violation));
+                        failedTests.add(method.getName());
+                    }
+                } catch (Exception e) {
+                    System.out.println("FAILED");
+                    e.printStackTrace();
+                    failedTests.add(method.getName());
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            failedTests.add("<setup>");
+        }
+
+        System.out.println("--------------------------------------------------");
+        System.out.println("Summary: " + (passed + failedTests.size()) + " run, " + passed + " passed, "
+                + failedTests.size() + " failed.");
+        if (!failedTests.isEmpty()) {
+            System.out.println("Failed perf tests: " + failedTests);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Median allocation and wall time of one operation.
+     */
+    static final class PerfResult {
+        final long bytesPerOp;
+        final double millisPerOp;
+
+        PerfResult(long bytesPerOp, double millisPerOp) {
+            this.bytesPerOp = bytesPerOp;
+            this.millisPerOp = millisPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d bytes/op, %.2f ms/op", bytesPerOp, millisPerOp);
+        }
+    }
+
+    static PerfResult measure(Supplier<?> operation, int warmups, int iterations) {
+        com.sun.management.ThreadMXBean threads = allocationTracker();
+        for (int i = 0; i < warmups; i++) {
+            blackhole = operation.get();
+        }
+        long[] bytes = new long[iterations];
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            blackhole = operation.get();
+            nanos[i] = System.nanoTime() - start;
+            long allocatedAfter = threads.getCurrentThreadAllocatedBytes();
+            if (allocatedBefore < 0 || allocatedAfter < 0) {
+                throw new IllegalStateException("Thread allocation tracking was disabled during measurement");
+            }
+            bytes[i] = allocatedAfter - allocatedBefore;
+        }
+        return new PerfResult(median(bytes), median(nanos) / 1_000_000.0);
+    }
+
+    /**
+     * Returns the ThreadMXBean used to count allocated bytes, enabling
+     * per-thread allocation tracking if it is off. Without tracking,
+     * getCurrentThreadAllocatedBytes() returns -1 and every byte budget would
+     * pass unchecked.
+     *
+     * @throws IllegalStateException if this JVM cannot track thread allocation
+     */
+    static com.sun.management.ThreadMXBean allocationTracker() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not support thread allocation tracking;"
+                    + " byte budgets cannot be checked");
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        return threads;
+    }
+
+    /**
+     * @return One message per exceeded or missing budget; empty if within budget
+     */
+    static List<String> checkBudget(String name, PerfResult result, Properties budgets) {
+        List<String> violations = new ArrayList<>();
+        String bytesBudget = budgets.getProperty(name + ".bytesPerOp");
+        String millisBudget = budgets.getProperty(name + ".millisPerOp");
+        if (bytesBudget == null || millisBudget == null) {
+            violations.add("No budget; measured values for the budget file:");
+            violations.add(name + ".bytesPerOp=" + result.bytesPerOp);
+            violations.add(name + ".millisPerOp=" + String.format("%.2f", result.millisPerOp));
+            return violations;
+        }
+        if (result.bytesPerOp > Long.parseLong(bytesBudget.trim())) {
+            violations.add(String.format("Allocation over budget: %,d > %,d bytes/op", result.bytesPerOp,
+                    Long.parseLong(bytesBudget.trim())));
+        }
+        if (result.millisPerOp > Double.parseDouble(millisBudget.trim())) {
+            violations.add(String.format("Latency over budget: %.2f > %s ms/op", result.millisPerOp,
+                    millisBudget.trim()));
+        }
+        return violations;
+    }
+
+    private static Properties loadBudgets(String budgetFile) throws IOException {
+        Properties budgets = new Properties();
+        try (InputStream in = new FileInputStream(budgetFile)) {
+            budgets.load(in);
+        }
+        return budgets;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
     // Assertion helpers
     public static void assertEquals(Object expected, Object actual) {
         if (!expected.equals(actual)) {